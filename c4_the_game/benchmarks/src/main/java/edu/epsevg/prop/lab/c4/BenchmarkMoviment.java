@@ -0,0 +1,89 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Macrobenchmark de moviment: una operació és triar el moviment de les 32
+ * posicions de mig joc del conjunt fix, començant cada operació amb les
+ * taules buides (novaPartida). A més de les operacions per segon, el
+ * comptador auxiliar nodes dona els nodes per segon.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class BenchmarkMoviment {
+
+    @Param({"6", "8", "10"})
+    public int profunditat;
+
+    @Param({"false", "true"})
+    public boolean pvs;
+
+    @Param({"false", "true"})
+    public boolean tactica;
+
+    private Posicions posicions;
+    private MiniMassimo jugador;
+
+    /**
+     * Nodes explorats, que JMH divideix pel temps de la iteració
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reinicia() {
+            nodes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepara() {
+        posicions = new Posicions(32);
+    }
+
+    @Setup(Level.Iteration)
+    public void nouJugador() {
+        jugador = new MiniMassimo(profunditat, true, true);
+        jugador.setPVS(pvs);
+        jugador.setTactica(tactica);
+        jugador.setLlindarFinal(0); // Es mesura la cerca, no el solucionador de finals
+    }
+
+    @Setup(Level.Invocation)
+    public void buidaTaules() {
+        jugador.novaPartida(); // Sense reservar memòria, perquè no compti a la taxa d'assignació
+    }
+
+    @Benchmark
+    public int moviment(Nodes nodes) {
+        int suma = 0;
+        for (int i = 0; i < posicions.taulers.length; i++) {
+            suma += jugador.moviment(posicions.taulers[i], posicions.colors[i]);
+            nodes.nodes += jugador.getNodesMoviment();
+        }
+        return suma;
+    }
+}
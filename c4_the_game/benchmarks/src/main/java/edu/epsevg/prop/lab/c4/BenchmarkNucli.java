@@ -0,0 +1,128 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks de les operacions que es fan a cada node de la cerca:
+ * avaluació, detecció de victòries, generació de moviments, moure i desfer
+ * i còpia del tauler. Cada operació recorre les posicions de Posicions una
+ * rere l'altra perquè el JIT no s'especialitzi en un sol tauler.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkNucli {
+
+    private MiniMassimo jugador;
+    private Posicions posicions;
+    private TaulerBits[] taulers;
+    private TaulerBits[] ambJugada; // Les mateixes posicions després d'una jugada, com les fulles de la cerca
+    private int[] colors;
+    private int[] buffer;
+    private int i;
+
+    @Setup
+    public void prepara() {
+        jugador = new MiniMassimo(1, true, true, 0);
+        posicions = new Posicions(64);
+        taulers = posicions.bits();
+        colors = posicions.colors;
+        buffer = new int[Posicions.MIDA];
+
+        // Els taulers de Posicions no tenen cap moviment fet, de manera que
+        // avaluarTauler no hi comprovaria la victòria de l'últim moviment
+        ambJugada = new TaulerBits[taulers.length];
+        for (int p = 0; p < taulers.length; p++) {
+            ambJugada[p] = new TaulerBits(taulers[p]);
+            for (int col : ambJugada[p].getOrdreCentre()) {
+                if (ambJugada[p].movpossible(col)) {
+                    ambJugada[p].makeMove(col);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Passa a la següent posició del conjunt
+     *
+     * @return índex de la posició
+     */
+    private int seguent() {
+        i = (i + 1) & (taulers.length - 1);
+        return i;
+    }
+
+    @Benchmark
+    public int avaluarTauler() {
+        int k = seguent();
+        return jugador.avaluarTauler(ambJugada[k], colors[k]);
+    }
+
+    @Benchmark
+    public int avaluarPosicio() {
+        int k = seguent();
+        return jugador.avaluarPosicio(taulers[k], colors[k]);
+    }
+
+    @Benchmark
+    public boolean haGuanyat() {
+        TaulerBits t = taulers[seguent()];
+        int col = t.getOrdreCentre()[0];
+        if (!t.movpossible(col)) return false;
+        int color = t.getTorn();
+        t.makeMove(col);
+        boolean guanya = jugador.haGuanyat(t, color);
+        t.unmakeMove(col);
+        return guanya;
+    }
+
+    @Benchmark
+    public boolean haGuanyatComplet() {
+        TaulerBits t = taulers[seguent()];
+        return t.haGuanyat(t.getTorn());
+    }
+
+    @Benchmark
+    public long makeUnmake() {
+        TaulerBits t = taulers[seguent()];
+        int col = t.getOrdreCentre()[0];
+        if (!t.movpossible(col)) return 0;
+        t.makeMove(col);
+        long hash = t.getHash();
+        t.unmakeMove(col);
+        return hash;
+    }
+
+    @Benchmark
+    public int getMovimentsValids() {
+        return jugador.getMovimentsValids(taulers[seguent()], buffer);
+    }
+
+    @Benchmark
+    public TaulerBits copiaTaulerBits() {
+        return new TaulerBits(taulers[seguent()]);
+    }
+
+    @Benchmark
+    public TaulerBits taulerABits() {
+        int k = seguent();
+        return new TaulerBits(posicions.taulers[k], colors[k]);
+    }
+}
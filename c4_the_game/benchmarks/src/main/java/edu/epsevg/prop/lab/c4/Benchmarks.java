@@ -0,0 +1,27 @@
+package edu.epsevg.prop.lab.c4;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punt d'entrada de benchmarks.jar: executa JMH amb les opcions de la línia
+ * d'ordres i hi afegeix sempre el perfilador de GC, perquè els resultats
+ * incloguin la taxa d'assignació de memòria (gc.alloc.rate.norm).
+ *
+ * Ús: java -jar benchmarks.jar [opcions de JMH], per exemple
+ * java -jar benchmarks.jar BenchmarkMoviment -p profunditat=8
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions linia = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder().parent(linia).addProfiler(GCProfiler.class).build()).run();
+    }
+}
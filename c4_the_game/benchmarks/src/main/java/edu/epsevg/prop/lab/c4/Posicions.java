@@ -0,0 +1,41 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.util.Random;
+
+/**
+ * Conjunt fix de posicions de mig joc del tauler 8x8 per als benchmarks.
+ * Es generen amb moviments aleatoris i una llavor fixa, de manera que totes
+ * les execucions mesuren exactament les mateixes posicions.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+final class Posicions {
+
+    static final int MIDA = 8;
+
+    final Tauler[] taulers;
+    final int[] colors; // Color a qui toca tirar a cada posició
+
+    /**
+     * Constructora
+     *
+     * @param n nombre de posicions
+     */
+    Posicions(int n) {
+        taulers = new Tauler[n];
+        colors = new int[n];
+        PosicionsAleatories.omple(taulers, colors, 0, MIDA, 10, 24, new Random(2024));
+    }
+
+    /**
+     * Passa les posicions a bitboards
+     *
+     * @return un TaulerBits per posició, amb el torn de qui ha de tirar
+     */
+    TaulerBits[] bits() {
+        TaulerBits[] bits = new TaulerBits[taulers.length];
+        for (int i = 0; i < bits.length; i++) bits[i] = new TaulerBits(taulers[i], colors[i]);
+        return bits;
+    }
+}
@@ -0,0 +1,186 @@
+package edu.epsevg.prop.lab.c4;
+
+/**
+ * EstadistiquesCerca: mètriques d'un moviment de MiniMassimo. Els
+ * comptadors es porten a cada fil de la cerca sense cap sincronització i
+ * només se sumen un cop acabat el moviment, de manera que recollir-les no
+ * alenteix la cerca.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public final class EstadistiquesCerca {
+
+    /** El moviment s'ha triat amb la cerca a profunditat limitada */
+    public static final String CERCA = "cerca";
+    /** El moviment s'ha triat resolent la posició fins al final */
+    public static final String SOLUCIO = "solució";
+    /** El moviment ve del llibre d'obertures */
+    public static final String LLIBRE = "llibre";
+    /** El moviment ve de la ponderació feta durant el torn del rival */
+    public static final String PONDERACIO = "ponderació";
+
+    private final String origen;
+    private final int columna, profunditat, valor;
+    private final long temps; // Nanosegons
+    private final long nodes, nodesInteriors, talls, tallsPrimerMoviment;
+    private final long consultesTaula, encertsTaula;
+
+    /**
+     * Constructora
+     *
+     * @param origen CERCA, SOLUCIO, LLIBRE o PONDERACIO
+     * @param columna columna triada
+     * @param profunditat profunditat de l'última cerca completa
+     * @param valor valor de la posició per al jugador que mou segons la cerca, 0 si no s'ha cercat
+     * @param temps nanosegons que ha durat el moviment
+     * @param nodes nodes explorats per tots els fils
+     * @param nodesInteriors nodes on s'han generat moviments
+     * @param talls nodes on un moviment ha provocat una poda
+     * @param tallsPrimerMoviment podes provocades pel primer moviment provat
+     * @param consultesTaula consultes a les taules de transposició
+     * @param encertsTaula consultes que han trobat la posició
+     */
+    EstadistiquesCerca(String origen, int columna, int profunditat, int valor, long temps, long nodes, long nodesInteriors,
+            long talls, long tallsPrimerMoviment, long consultesTaula, long encertsTaula) {
+        this.origen = origen;
+        this.columna = columna;
+        this.profunditat = profunditat;
+        this.valor = valor;
+        this.temps = temps;
+        this.nodes = nodes;
+        this.nodesInteriors = nodesInteriors;
+        this.talls = talls;
+        this.tallsPrimerMoviment = tallsPrimerMoviment;
+        this.consultesTaula = consultesTaula;
+        this.encertsTaula = encertsTaula;
+    }
+
+    /**
+     * Getter de l'origen del moviment
+     *
+     * @return CERCA, SOLUCIO, LLIBRE o PONDERACIO
+     */
+    public String getOrigen() {
+        return origen;
+    }
+
+    /**
+     * Getter de la columna triada
+     *
+     * @return columna del moviment
+     */
+    public int getColumna() {
+        return columna;
+    }
+
+    /**
+     * Getter de la profunditat assolida
+     *
+     * @return profunditat de l'última cerca completa; amb SOLUCIO, les caselles que quedaven buides
+     */
+    public int getProfunditat() {
+        return profunditat;
+    }
+
+    /**
+     * Getter del valor que la cerca ha donat a la posició, des del punt de
+     * vista del jugador que ha mogut. Una victòria segura val 1000000 i una
+     * derrota segura -1000000; amb SOLUCIO el valor és exacte i només pot
+     * ser 1000000, 0 (taules) o -1000000.
+     *
+     * @return valor heurístic del millor moviment, 0 amb LLIBRE i PONDERACIO
+     */
+    public int getValor() {
+        return valor;
+    }
+
+    /**
+     * Getter del temps del moviment
+     *
+     * @return nanosegons des que s'ha cridat moviment fins que ha retornat
+     */
+    public long getTemps() {
+        return temps;
+    }
+
+    /**
+     * Getter dels nodes explorats
+     *
+     * @return nodes de tots els fils
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Nodes explorats per segon
+     *
+     * @return nodes dividits pel temps del moviment
+     */
+    public double getNodesPerSegon() {
+        return temps == 0 ? 0 : nodes * 1e9 / temps;
+    }
+
+    /**
+     * Proporció de nodes interiors on hi ha hagut una poda
+     *
+     * @return podes dividides pels nodes on s'han generat moviments, entre 0 i 1
+     */
+    public double getTaxaTalls() {
+        return nodesInteriors == 0 ? 0 : (double) talls / nodesInteriors;
+    }
+
+    /**
+     * Percentatge de podes que ha provocat el primer moviment provat, que
+     * mesura com de bona és l'ordenació
+     *
+     * @return percentatge entre 0 i 100
+     */
+    public double getPercentatgeTallsPrimerMoviment() {
+        return talls == 0 ? 0 : 100.0 * tallsPrimerMoviment / talls;
+    }
+
+    /**
+     * Factor de ramificació efectiu: el nombre de fills per node que faria
+     * que un arbre uniforme de la profunditat assolida tingués els mateixos nodes
+     *
+     * @return arrel d'ordre profunditat dels nodes, 0 si no s'ha cercat
+     */
+    public double getFactorRamificacio() {
+        return profunditat == 0 || nodes == 0 ? 0 : Math.pow(nodes, 1.0 / profunditat);
+    }
+
+    /**
+     * Getter de les consultes a les taules de transposició
+     *
+     * @return consultes fetes, 0 si no n'hi ha cap
+     */
+    public long getConsultesTaula() {
+        return consultesTaula;
+    }
+
+    /**
+     * Getter dels encerts a les taules de transposició
+     *
+     * @return consultes que han trobat la posició guardada
+     */
+    public long getEncertsTaula() {
+        return encertsTaula;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Moviment ").append(columna).append(" (").append(origen).append("): ");
+        sb.append(nodes).append(" nodes en ").append(String.format("%.1f", temps / 1e6)).append(" ms");
+        if (nodes > 0) {
+            sb.append(String.format("; %.0f nodes/s; profunditat %d; ramificació %.2f; podes %.1f%% (%.1f%% al primer moviment)",
+                    getNodesPerSegon(), profunditat, getFactorRamificacio(), 100 * getTaxaTalls(), getPercentatgeTallsPrimerMoviment()));
+        }
+        if (consultesTaula > 0) {
+            sb.append(String.format("; taula %d/%d encerts", encertsTaula, consultesTaula));
+        }
+        return sb.toString();
+    }
+}
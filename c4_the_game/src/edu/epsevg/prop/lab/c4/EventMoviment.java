@@ -0,0 +1,55 @@
+package edu.epsevg.prop.lab.c4;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Esdeveniment de JDK Flight Recorder per a cada moviment de MiniMassimo,
+ * amb les mateixes mètriques que EstadistiquesCerca. Si no hi ha cap
+ * enregistrament actiu, crear-lo i comprovar shouldCommit no costa gairebé res.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+@Name("edu.epsevg.prop.lab.c4.Moviment")
+@Label("Moviment de MiniMassimo")
+@Category("MiniMassimo")
+@Description("Cerca d'un moviment: nodes, podes, profunditat i taula de transposició")
+final class EventMoviment extends Event {
+
+    @Label("Origen")
+    String origen;
+
+    @Label("Columna")
+    int columna;
+
+    @Label("Profunditat")
+    int profunditat;
+
+    @Label("Valor")
+    int valor;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Nodes per segon")
+    double nodesPerSegon;
+
+    @Label("Taxa de podes")
+    double taxaTalls;
+
+    @Label("Podes al primer moviment (%)")
+    double percentatgeTallsPrimerMoviment;
+
+    @Label("Factor de ramificació")
+    double factorRamificacio;
+
+    @Label("Consultes a la taula")
+    long consultesTaula;
+
+    @Label("Encerts a la taula")
+    long encertsTaula;
+}
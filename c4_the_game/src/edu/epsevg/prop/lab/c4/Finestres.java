@@ -0,0 +1,153 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finestres: taules precalculades amb totes les línies de K cel·les d'un
+ * tauler d'unes mides donades. Es construeixen un sol cop per mides i K i
+ * les comparteixen tots els TaulerBits, de manera que l'avaluació i la
+ * detecció de victòries només recorren arrays, sense calcular límits a cada
+ * node.
+ *
+ * Les cel·les s'indexen com a TaulerBits: col * alcada + fila.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+final class Finestres {
+
+    /** Nombre màxim de files i de columnes */
+    static final int MIDA_MAXIMA = 16;
+
+    // Posició dels camps de 16 bits dels totals que porta TaulerBits
+    static final int FALTA_UNA_P1 = 0, FALTEN_DUES_P1 = 16, FALTA_UNA_P2 = 32, FALTEN_DUES_P2 = 48;
+
+    private static final Map<Integer, Finestres> PER_MIDES = new HashMap<>();
+
+    final int amplada, alcada, k;
+    final int nombre; // Nombre de finestres
+
+    // Les K cel·les de cada finestra w: celles[k * w + i]
+    final int[] celles;
+
+    // Índex invers: les finestres que passen per la cel·la c són
+    // perCella[iniciCella[c]] ... perCella[iniciCella[c + 1] - 1]
+    final int[] iniciCella;
+    final int[] perCella;
+
+    // L'estat d'una finestra és n1 + base * n2, on n1 i n2 són les fitxes del
+    // color 1 i del color -1 que hi ha i base és k + 1. contribucio[estat]
+    // diu, en els camps dels totals, si la finestra té k - 1 o k - 2 fitxes
+    // d'un sol color i la resta buides.
+    final int base;
+    final long[] contribucio;
+
+    // Es combina amb el hash Zobrist a les claus de les taules de MiniMassimo,
+    // perquè unes mateixes cel·les amb unes altres mides o una altra K no
+    // comparteixin entrada
+    final long clauRegles;
+
+    final boolean[] central; // Columnes del mig: una, o dues si l'amplada és parell
+    final int[] ordreCentre; // Columnes de la més propera a la més allunyada del centre
+
+    /**
+     * Retorna les taules d'unes mides de tauler, construint-les el primer cop
+     *
+     * @param amplada nombre de columnes del tauler (com a molt MIDA_MAXIMA)
+     * @param alcada nombre de files del tauler (com a molt MIDA_MAXIMA)
+     * @param k fitxes en línia que calen per guanyar (com a molt MIDA_MAXIMA)
+     * @return taules de finestres de les mides
+     */
+    static synchronized Finestres de(int amplada, int alcada, int k) {
+        // Un byte per a cada mida: no hi ha col·lisions mentre no passin de 255
+        Integer clau = amplada << 16 | alcada << 8 | k;
+        Finestres f = PER_MIDES.get(clau);
+        if (f == null) {
+            f = new Finestres(amplada, alcada, k);
+            PER_MIDES.put(clau, f);
+        }
+        return f;
+    }
+
+    /**
+     * Constructora: enumera totes les finestres de les mides
+     *
+     * @param amplada nombre de columnes del tauler
+     * @param alcada nombre de files del tauler
+     * @param k fitxes en línia que calen per guanyar
+     */
+    private Finestres(int amplada, int alcada, int k) {
+        this.amplada = amplada;
+        this.alcada = alcada;
+        this.k = k;
+        int n = amplada * alcada;
+
+        // Barreja de SplitMix64 de les tres mides
+        long z = ((long) amplada << 16 | (long) alcada << 8 | k) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        this.clauRegles = z ^ (z >>> 31);
+
+        this.central = new boolean[amplada];
+        central[amplada / 2] = true;
+        central[(amplada - 1) / 2] = true;
+
+        // Ordre estàtic de les columnes: primer la central i després cap als
+        // costats, amb la de l'esquerra abans en cas d'empat
+        this.ordreCentre = new int[amplada];
+        int c = 0;
+        for (int dist = 0; c < amplada; dist++) {
+            if (amplada / 2 - dist >= 0) ordreCentre[c++] = amplada / 2 - dist;
+            if (dist > 0 && amplada / 2 + dist < amplada) ordreCentre[c++] = amplada / 2 + dist;
+        }
+
+        // Una finestra per cada cel·la on pot començar una línia en cada
+        // direcció: horitzontal, vertical, diagonal / i diagonal \
+        int[] dCol = {1, 0, 1, 1};
+        int[] dFila = {0, 1, 1, -1};
+        int inicisCol = Math.max(0, amplada - k + 1), inicisFila = Math.max(0, alcada - k + 1);
+        this.nombre = inicisCol * alcada + amplada * inicisFila + 2 * inicisCol * inicisFila;
+        this.celles = new int[k * nombre];
+        int[] quantes = new int[n];
+        int w = 0;
+        for (int d = 0; d < 4; d++) {
+            for (int col = 0; col < amplada; col++) {
+                for (int fila = 0; fila < alcada; fila++) {
+                    int colFi = col + (k - 1) * dCol[d], filaFi = fila + (k - 1) * dFila[d];
+                    if (colFi >= amplada || filaFi < 0 || filaFi >= alcada) continue;
+                    for (int i = 0; i < k; i++) {
+                        int cella = (col + i * dCol[d]) * alcada + fila + i * dFila[d];
+                        celles[k * w + i] = cella;
+                        quantes[cella]++;
+                    }
+                    w++;
+                }
+            }
+        }
+
+        this.iniciCella = new int[n + 1];
+        for (int cella = 0; cella < n; cella++) iniciCella[cella + 1] = iniciCella[cella] + quantes[cella];
+        this.perCella = new int[iniciCella[n]];
+        int[] posicio = new int[n];
+        for (w = 0; w < nombre; w++) {
+            for (int i = 0; i < k; i++) {
+                int cella = celles[k * w + i];
+                perCella[iniciCella[cella] + posicio[cella]++] = w;
+            }
+        }
+
+        this.base = k + 1;
+        this.contribucio = new long[base * base];
+        for (int n1 = 0; n1 <= k; n1++) {
+            for (int n2 = 0; n1 + n2 <= k; n2++) {
+                long v = 0;
+                if (n2 == 0 && n1 == k - 1) v += 1L << FALTA_UNA_P1;
+                if (n2 == 0 && n1 == k - 2) v += 1L << FALTEN_DUES_P1;
+                if (n1 == 0 && n2 == k - 1) v += 1L << FALTA_UNA_P2;
+                if (n1 == 0 && n2 == k - 2) v += 1L << FALTEN_DUES_P2;
+                contribucio[n1 + base * n2] = v;
+            }
+        }
+    }
+}
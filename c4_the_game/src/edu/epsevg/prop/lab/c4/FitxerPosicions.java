@@ -0,0 +1,319 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * FitxerPosicions: fitxer binari de només afegir amb posicions etiquetades
+ * per la cerca, el que genera GeneraPartides per analitzar i ajustar els
+ * pesos de l'heurística.
+ *
+ * El format és una capçalera de 16 bytes (número màgic, amplada, alçada i
+ * K) i després registres de mida fixa, un per posició: les paraules del
+ * bitboard del jugador que mou i després les del rival (vegeu
+ * TaulerBits.getFitxes), el valor de la cerca des del punt de vista del
+ * jugador que mou (4 bytes), la columna triada, la profunditat de la cerca,
+ * el resultat final de la partida per al jugador que mou (1, 0 o -1) i uns
+ * indicadors (1 byte cadascun). Un tauler de 8x8 ocupa 24 bytes per posició.
+ *
+ * Els registres s'omplen en buffers de cada fil i s'escriuen de cop al
+ * canal, de manera que el conjunt de dades no es guarda mai sencer en
+ * memòria i es pot afegir a un fitxer existent de les mateixes mides.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class FitxerPosicions implements Closeable {
+
+    private static final int MAGIC = 0x43345053; // "C4PS"
+    private static final int MIDA_CAPCALERA = 16;
+
+    /** Indicador: la posició s'ha resolt fins al final i el valor és exacte */
+    public static final int SOLUCIO = 1;
+
+    private final FileChannel canal;
+    private final int paraules, midaRegistre;
+    private long registres; // Registres escrits per aquesta instància
+
+    /**
+     * Constructora: obre un fitxer per afegir-hi posicions. Si no existeix o
+     * és buit es crea amb la capçalera; si ja existeix, ha de ser de les
+     * mateixes mides.
+     *
+     * @param fitxer camí del fitxer
+     * @param amplada nombre de columnes del tauler
+     * @param alcada nombre de files del tauler
+     * @param k fitxes en línia que calen per guanyar
+     * @throws IOException si no es pot obrir o és d'unes altres mides
+     */
+    public FitxerPosicions(String fitxer, int amplada, int alcada, int k) throws IOException {
+        this.paraules = (amplada * alcada + 63) >>> 6;
+        this.midaRegistre = midaRegistre(paraules);
+        Path cami = Paths.get(fitxer);
+        boolean nou = !Files.exists(cami) || Files.size(cami) == 0;
+        if (!nou) {
+            try (Lector lector = new Lector(fitxer)) {
+                if (lector.amplada != amplada || lector.alcada != alcada || lector.k != k) {
+                    throw new IOException("El fitxer " + fitxer + " és de taulers de " + lector.amplada + "x"
+                            + lector.alcada + " amb K = " + lector.k);
+                }
+            }
+        }
+        this.canal = FileChannel.open(cami, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (nou) {
+            ByteBuffer capcalera = ByteBuffer.allocate(MIDA_CAPCALERA);
+            capcalera.putInt(MAGIC).putInt(amplada).putInt(alcada).putInt(k);
+            capcalera.flip();
+            while (capcalera.hasRemaining()) canal.write(capcalera);
+        }
+    }
+
+    /**
+     * Bytes d'un registre
+     *
+     * @param paraules paraules de 64 bits del bitboard de cada color
+     * @return mida del registre
+     */
+    private static int midaRegistre(int paraules) {
+        return 16 * paraules + 8;
+    }
+
+    /**
+     * Getter de la mida d'un registre
+     *
+     * @return bytes que ocupa cada posició
+     */
+    public int getMidaRegistre() {
+        return midaRegistre;
+    }
+
+    /**
+     * Afegeix la posició d'un tauler a un buffer. El resultat de la partida
+     * es deixa a 0 i s'hi posa amb posaResultat quan s'acaba.
+     *
+     * @param buffer buffer on s'afegeix el registre; hi ha de caber
+     * @param tauler posició, amb el torn del jugador que mou
+     * @param valor valor de la cerca per al jugador que mou
+     * @param columna columna triada
+     * @param profunditat profunditat de la cerca
+     * @param indicadors SOLUCIO o 0
+     */
+    public void afegeix(ByteBuffer buffer, TaulerBits tauler, int valor, int columna, int profunditat, int indicadors) {
+        int jugador = tauler.getTorn();
+        for (int p = 0; p < paraules; p++) buffer.putLong(tauler.getFitxes(jugador, p));
+        for (int p = 0; p < paraules; p++) buffer.putLong(tauler.getFitxes(-jugador, p));
+        buffer.putInt(valor);
+        buffer.put((byte) columna);
+        buffer.put((byte) Math.min(profunditat, 127));
+        buffer.put((byte) 0);
+        buffer.put((byte) indicadors);
+    }
+
+    /**
+     * Posa el resultat de la partida a un registre que ja és al buffer
+     *
+     * @param buffer buffer on hi ha el registre
+     * @param posicio posició del buffer on comença el registre
+     * @param resultat 1 si el jugador que mou a la posició ha guanyat, 0 si han estat taules, -1 si ha perdut
+     */
+    public void posaResultat(ByteBuffer buffer, int posicio, int resultat) {
+        buffer.put(posicio + 16 * paraules + 6, (byte) resultat);
+    }
+
+    /**
+     * Escriu al fitxer tots els registres d'un buffer i el deixa buit. Els
+     * registres de cada crida queden seguits al fitxer.
+     *
+     * @param buffer buffer amb els registres des de la posició 0
+     * @throws IOException si no es pot escriure
+     */
+    public synchronized void escriu(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        registres += buffer.remaining() / midaRegistre;
+        while (buffer.hasRemaining()) canal.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Getter dels registres escrits des que s'ha obert el fitxer
+     *
+     * @return posicions afegides
+     */
+    public synchronized long getRegistres() {
+        return registres;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    /**
+     * Lector seqüencial d'un fitxer de posicions. Llegeix el fitxer per
+     * blocs, de manera que es pot recórrer un fitxer de qualsevol mida.
+     */
+    public static class Lector implements Closeable {
+
+        private final FileChannel canal;
+        private final ByteBuffer buffer;
+        private final int amplada, alcada, k, paraules, midaRegistre;
+        private final long[] jugador, rival;
+        private int valor, columna, profunditat, resultat, indicadors;
+
+        /**
+         * Constructora: obre un fitxer i en llegeix la capçalera
+         *
+         * @param fitxer camí del fitxer
+         * @throws IOException si no es pot llegir o no és un fitxer de posicions
+         */
+        public Lector(String fitxer) throws IOException {
+            this.canal = FileChannel.open(Paths.get(fitxer), StandardOpenOption.READ);
+            ByteBuffer capcalera = ByteBuffer.allocate(MIDA_CAPCALERA);
+            while (capcalera.hasRemaining() && canal.read(capcalera) >= 0) { }
+            capcalera.flip();
+            if (capcalera.remaining() < MIDA_CAPCALERA || capcalera.getInt() != MAGIC) {
+                canal.close();
+                throw new IOException("El fitxer " + fitxer + " no és un fitxer de posicions");
+            }
+            this.amplada = capcalera.getInt();
+            this.alcada = capcalera.getInt();
+            this.k = capcalera.getInt();
+            this.paraules = (amplada * alcada + 63) >>> 6;
+            this.midaRegistre = midaRegistre(paraules);
+            if ((canal.size() - MIDA_CAPCALERA) % midaRegistre != 0) {
+                canal.close();
+                throw new IOException("El fitxer de posicions " + fitxer + " està truncat");
+            }
+            this.buffer = ByteBuffer.allocateDirect(midaRegistre * 4096);
+            buffer.flip(); // Buit fins a la primera lectura
+            this.jugador = new long[paraules];
+            this.rival = new long[paraules];
+        }
+
+        /**
+         * Llegeix el següent registre
+         *
+         * @return false si ja no en queden
+         * @throws IOException si no es pot llegir
+         */
+        public boolean seguent() throws IOException {
+            if (buffer.remaining() < midaRegistre) {
+                buffer.compact();
+                while (buffer.hasRemaining() && canal.read(buffer) >= 0) { } // Omple el buffer sencer o fins al final del fitxer
+                buffer.flip();
+                if (buffer.remaining() < midaRegistre) return false;
+            }
+            for (int p = 0; p < paraules; p++) jugador[p] = buffer.getLong();
+            for (int p = 0; p < paraules; p++) rival[p] = buffer.getLong();
+            valor = buffer.getInt();
+            columna = buffer.get();
+            profunditat = buffer.get();
+            resultat = buffer.get();
+            indicadors = buffer.get();
+            return true;
+        }
+
+        /**
+         * Getter de l'amplada dels taulers del fitxer
+         *
+         * @return nombre de columnes
+         */
+        public int getAmplada() {
+            return amplada;
+        }
+
+        /**
+         * Getter de l'alçada dels taulers del fitxer
+         *
+         * @return nombre de files
+         */
+        public int getAlcada() {
+            return alcada;
+        }
+
+        /**
+         * Getter de les fitxes en línia per guanyar
+         *
+         * @return K
+         */
+        public int getK() {
+            return k;
+        }
+
+        /**
+         * Getter d'una paraula del bitboard del jugador que mou al registre actual
+         *
+         * @param paraula índex de la paraula
+         * @return bits de les seves fitxes, amb la numeració de TaulerBits.getFitxes
+         */
+        public long getFitxesJugador(int paraula) {
+            return jugador[paraula];
+        }
+
+        /**
+         * Getter d'una paraula del bitboard del rival al registre actual
+         *
+         * @param paraula índex de la paraula
+         * @return bits de les seves fitxes, amb la numeració de TaulerBits.getFitxes
+         */
+        public long getFitxesRival(int paraula) {
+            return rival[paraula];
+        }
+
+        /**
+         * Getter del valor de la cerca
+         *
+         * @return valor per al jugador que mou
+         */
+        public int getValor() {
+            return valor;
+        }
+
+        /**
+         * Getter de la columna triada
+         *
+         * @return columna del moviment de la cerca
+         */
+        public int getColumna() {
+            return columna;
+        }
+
+        /**
+         * Getter de la profunditat de la cerca
+         *
+         * @return profunditat de l'última cerca completa
+         */
+        public int getProfunditat() {
+            return profunditat;
+        }
+
+        /**
+         * Getter del resultat de la partida
+         *
+         * @return 1, 0 o -1 per al jugador que mou
+         */
+        public int getResultat() {
+            return resultat;
+        }
+
+        /**
+         * Indica si el valor és exacte perquè la posició s'ha resolt
+         *
+         * @return true si el registre té l'indicador SOLUCIO
+         */
+        public boolean esSolucio() {
+            return (indicadors & SOLUCIO) != 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+}
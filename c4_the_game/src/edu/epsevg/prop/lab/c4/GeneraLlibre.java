@@ -0,0 +1,92 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Genera el llibre d'obertures del tauler 8x8 de Juga2: cerca a profunditat
+ * fixa totes les posicions que es poden donar fins a un cert nombre de
+ * plies, començant sempre el color 1, i en guarda el millor moviment.
+ * Les posicions es reparteixen entre tots els processadors.
+ *
+ * Ús: GeneraLlibre [plies] [profunditat] [fitxer]
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class GeneraLlibre {
+
+    private static final int MIDA = 8;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final int plies = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        final int profunditat = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String fitxer = args.length > 2 ? args[2] : "llibre.bin";
+
+        List<Tauler> posicions = new ArrayList<>();
+        List<Integer> colors = new ArrayList<>();
+        enumera(new Tauler(MIDA), 1, plies, new HashSet<Long>(), posicions, colors);
+
+        final ConcurrentSkipListMap<Long, Integer> moviments = new ConcurrentSkipListMap<>();
+        final AtomicInteger fetes = new AtomicInteger();
+        final int total = posicions.size();
+        long inici = System.nanoTime();
+        ExecutorService fils = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        for (int i = 0; i < total; i++) {
+            final Tauler t = posicions.get(i);
+            final int color = colors.get(i);
+            fils.submit(new Runnable() {
+                @Override
+                public void run() {
+                    MiniMassimo jugador = new MiniMassimo(profunditat, true, true, 1 << 18);
+                    jugador.setPVS(true);
+                    int col = jugador.moviment(t, color);
+                    TaulerBits tauler = new TaulerBits(t, color);
+                    moviments.put(LlibreObertures.clau(tauler), tauler.columnaCanonica(col));
+                    int n = fetes.incrementAndGet();
+                    if (n % 100 == 0 || n == total) System.out.println("Posicions cercades: " + n + " / " + total);
+                }
+            });
+        }
+        fils.shutdown();
+        fils.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        LlibreObertures.escriu(fitxer, MIDA, plies, moviments);
+        System.out.println("Llibre escrit a " + fitxer + ": " + moviments.size() + " posicions en "
+                + (System.nanoTime() - inici) / 1000000000 + " s");
+    }
+
+    /**
+     * Afegeix una posició i totes les que se'n poden arribar a la llista de
+     * posicions a cercar. Les transposicions i les posicions simètriques només
+     * s'hi afegeixen un cop.
+     *
+     * @param t posició actual
+     * @param color color a qui toca tirar
+     * @param plies nombre de moviments que encara es poden fer
+     * @param vistes claus de les posicions ja afegides
+     * @param posicions llista on s'afegeixen les posicions
+     * @param colors llista on s'afegeix el color a qui toca tirar a cada posició
+     */
+    private static void enumera(Tauler t, int color, int plies, Set<Long> vistes, List<Tauler> posicions, List<Integer> colors) {
+        if (!vistes.add(LlibreObertures.clau(new TaulerBits(t, color)))) return;
+        posicions.add(t);
+        colors.add(color);
+        if (plies == 0) return;
+        for (int col = 0; col < MIDA; col++) {
+            if (!t.movpossible(col)) continue;
+            Tauler fill = new Tauler(t);
+            fill.afegeix(col, color);
+            if (fill.solucio(col, color) || !fill.espotmoure()) continue; // Partida acabada: no cal moviment
+            enumera(fill, -color, plies - 1, vistes, posicions, colors);
+        }
+    }
+}
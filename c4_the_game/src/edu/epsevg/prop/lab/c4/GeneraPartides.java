@@ -0,0 +1,131 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Genera posicions etiquetades fent jugar MiniMassimo contra ell mateix, per
+ * analitzar i ajustar els pesos de avaluarFinestra. Cada partida comença amb
+ * unes quantes jugades aleatòries, perquè no surtin sempre les mateixes, i
+ * després la cerca tria tots els moviments. De cada posició es guarda el
+ * valor i la columna de la cerca i, un cop acabada la partida, el resultat.
+ *
+ * Les partides es reparteixen entre tots els processadors; cada fil té el
+ * seu jugador i el seu buffer, i els buffers plens s'afegeixen al fitxer
+ * (vegeu FitxerPosicions), de manera que es poden generar milions de
+ * posicions sense guardar-les en memòria.
+ *
+ * Ús: GeneraPartides [partides] [profunditat] [temps ms] [fitxer] [jugades aleatòries] [mida] [k]
+ *
+ * Amb temps 0 es cerca a profunditat fixa; si no, amb aprofundiment
+ * iteratiu fins al temps per moviment i com a molt a la profunditat.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class GeneraPartides {
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        final int partides = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        final int profunditat = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        final long tempsMs = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        String fitxer = args.length > 3 ? args[3] : "posicions.bin";
+        final int obertura = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+        final int mida = args.length > 5 ? Integer.parseInt(args[5]) : 8;
+        final int k = args.length > 6 ? Integer.parseInt(args[6]) : TaulerBits.K_PER_DEFECTE;
+
+        final long llavor = System.currentTimeMillis();
+        final AtomicInteger seguent = new AtomicInteger();
+        final AtomicInteger fetes = new AtomicInteger();
+        int nFils = Runtime.getRuntime().availableProcessors();
+        System.out.println("Generant " + partides + " partides amb " + nFils + " fils (llavor " + llavor + ")");
+        final long inici = System.nanoTime();
+        try (final FitxerPosicions sortida = new FitxerPosicions(fitxer, mida, mida, k)) {
+            ExecutorService fils = Executors.newFixedThreadPool(nFils);
+            List<Future<?>> tasques = new ArrayList<>();
+            for (int f = 0; f < nFils; f++) {
+                tasques.add(fils.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        MiniMassimo jugador = new MiniMassimo(profunditat, true, true, 1 << 18, tempsMs);
+                        jugador.setPVS(true);
+                        // Hi ha d'haver lloc per a una partida sencera, que no es parteix entre escriptures
+                        int maxim = mida * mida * sortida.getMidaRegistre();
+                        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(1 << 16, 2 * maxim));
+                        try {
+                            for (int g = seguent.getAndIncrement(); g < partides; g = seguent.getAndIncrement()) {
+                                if (buffer.remaining() < maxim) sortida.escriu(buffer);
+                                jugador.novaPartida();
+                                juga(jugador, new TaulerBits(mida, mida, k), new Random(llavor + 7919L * g), obertura, sortida, buffer);
+                                int n = fetes.incrementAndGet();
+                                if (n % 100 == 0 || n == partides) {
+                                    System.out.printf("Partides: %d / %d; %.0f partides/s%n", n, partides,
+                                            n * 1e9 / (System.nanoTime() - inici));
+                                }
+                            }
+                            sortida.escriu(buffer);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }));
+            }
+            fils.shutdown();
+            for (Future<?> tasca : tasques) tasca.get(); // Si un fil no ha pogut escriure, l'error surt aquí
+            System.out.println("Afegides " + sortida.getRegistres() + " posicions a " + fitxer + " en "
+                    + (System.nanoTime() - inici) / 1000000000 + " s");
+        }
+    }
+
+    /**
+     * Juga una partida i n'afegeix les posicions al buffer
+     *
+     * @param jugador motor que tria els moviments dels dos colors
+     * @param tauler tauler buit
+     * @param r generador de les jugades aleatòries de l'obertura
+     * @param obertura nombre de jugades aleatòries abans de començar a cercar
+     * @param sortida format dels registres
+     * @param buffer buffer on s'afegeixen, amb lloc per a tota la partida
+     */
+    private static void juga(MiniMassimo jugador, TaulerBits tauler, Random r, int obertura,
+            FitxerPosicions sortida, ByteBuffer buffer) {
+        // Obertura aleatòria, sense jugades que guanyin directament
+        for (int intents = 0; tauler.getNombreJugades() < obertura && intents < 100 * obertura; intents++) {
+            int col = r.nextInt(tauler.getAmplada());
+            if (!tauler.movpossible(col) || (tauler.columnesGuanyadores(tauler.getTorn()) & (1 << col)) != 0) continue;
+            tauler.makeMove(col);
+            if (!tauler.espotmoure()) return;
+        }
+
+        int primera = buffer.position();
+        int primerColor = tauler.getTorn();
+        int guanyador = 0;
+        while (tauler.espotmoure()) {
+            int color = tauler.getTorn();
+            int col = jugador.moviment(tauler);
+            EstadistiquesCerca e = jugador.getEstadistiques();
+            boolean solucio = e.getOrigen().equals(EstadistiquesCerca.SOLUCIO);
+            sortida.afegeix(buffer, tauler, e.getValor(), col, e.getProfunditat(), solucio ? FitxerPosicions.SOLUCIO : 0);
+            tauler.makeMove(col);
+            if (tauler.guanyaPer(tauler.getUltimaCella(), color)) {
+                guanyador = color;
+                break;
+            }
+        }
+
+        // Els colors s'alternen a cada registre
+        int color = primerColor;
+        for (int p = primera; p < buffer.position(); p += sortida.getMidaRegistre()) {
+            sortida.posaResultat(buffer, p, guanyador * color);
+            color = -color;
+        }
+    }
+}
@@ -32,11 +32,29 @@ public class Juga2 extends javax.swing.JFrame {
     int otherColor;
     boolean autoMode = true;
     boolean estaPensant = false;
+    int mida; // Files i columnes del tauler
+    int k; // Fitxes en línia per guanyar
+    RegistrePartida registre; // Moviments de la partida en curs
+    String fitxerPartides; // On s'afegeix cada partida acabada, null per no desar-les
+    long iniciTorn; // Instant (System.nanoTime) en què ha començat el torn actual
 
     /**
      * Creates new form NewJFrame
      */
     public Juga2(Jugador p1, Jugador p2, boolean useAutoMode) {
+        this(p1, p2, useAutoMode, 8, 4);
+    }
+
+    /**
+     * Partida en un tauler de qualsevol mida i amb qualsevol nombre de
+     * fitxes en línia per guanyar
+     *
+     * @param mida files i columnes del tauler
+     * @param k fitxes en línia per guanyar
+     */
+    public Juga2(Jugador p1, Jugador p2, boolean useAutoMode, int mida, int k) {
+        this.mida = mida;
+        this.k = k;
         initComponents();
 
         jTextField1.setEnabled(false);
@@ -51,7 +69,8 @@ public class Juga2 extends javax.swing.JFrame {
     }
 
     private void init() {
-        t = new Tauler(8);
+        t = new Tauler(mida);
+        registre = new RegistrePartida(mida, k, player1, player2);
 
         currentPlayer = player1;
         otherPlayer = player2;
@@ -64,13 +83,21 @@ public class Juga2 extends javax.swing.JFrame {
         Dimension mides = jLayeredPane1.getSize();
         Ymax = mides.getHeight();
         Xmax = mides.getWidth();
-        Step = (int) Xmax / 8;
+        Step = (int) Xmax / mida;
+
+        // Les franges de les columnes del formulari són per al tauler de 8; amb altres mides les dibuixa paint
+        javax.swing.Box.Filler[] franges = {filler4, filler5, filler6, filler7, filler8, filler9, filler10, filler2};
+        for (javax.swing.Box.Filler franja : franges) franja.setVisible(mida == 8);
     }
 
     /**
-     * @param args the command line arguments
+     * @param args mida del tauler (8 per defecte), fitxes en línia per guanyar
+     * (4 per defecte) i, opcionalment, el fitxer on s'afegeixen les partides acabades
      */
     public static void main(String args[]) {
+        int mida = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int k = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
         /* Set the Nimbus look and feel */
         //<editor-fold defaultstate="collapsed" desc=" Look and feel setting code (optional) ">
         /* If Nimbus (introduced in Java SE 6) is not available, stay with the default look and feel.
@@ -101,9 +128,20 @@ public class Juga2 extends javax.swing.JFrame {
         //Jugador p2 = new Profe(2,false);
         //Jugador p2 = new Manual();
         //Jugador p2 = new DemoPlayer();
-        Jugador p2 = new MiniMassimo(8, true, true);
+        MiniMassimo massimo = new MiniMassimo(8, true, true);
+        massimo.setFitxesPerGuanyar(k);
+        if (new java.io.File("llibre.bin").exists()) { // Generat amb GeneraLlibre
+            try {
+                massimo.setLlibre(new LlibreObertures("llibre.bin"));
+            } catch (java.io.IOException ex) {
+                java.util.logging.Logger.getLogger(Juga2.class.getName()).log(java.util.logging.Level.WARNING, null, ex);
+            }
+        }
+        //massimo.setPonderacio(true); // Pensa també mentre juga el rival
+        Jugador p2 = massimo;
         boolean autoMode = true;
-        final Juga2 j = new Juga2(p1, p2, autoMode);
+        final Juga2 j = new Juga2(p1, p2, autoMode, mida, k);
+        if (args.length > 2) j.setFitxerPartides(args[2]);
 
         /* Create and display the form */
         java.awt.EventQueue.invokeLater(new Runnable() {
@@ -115,7 +153,17 @@ public class Juga2 extends javax.swing.JFrame {
         });
     }
 
+    /**
+     * Indica on s'han de desar les partides acabades (vegeu RegistrePartida)
+     *
+     * @param fitxer camí del fitxer on s'afegeixen, null per no desar-les
+     */
+    public void setFitxerPartides(String fitxer) {
+        this.fitxerPartides = fitxer;
+    }
+
     private void mostraTornActual() {
+        iniciTorn = System.nanoTime();
         jTextField2.setText("TOCA JUGAR " + currentPlayer.nom() + " " + ((currentColor == 1) ? "P1(RED)" : "P2(BLUE)"));
         if (autoMode && currentPlayer instanceof IAuto) {
             runAuto();
@@ -256,7 +304,7 @@ public class Juga2 extends javax.swing.JFrame {
     private int whichy(int fil) {
         //return (446 - fil * 50);
         int m = (int)((Step * (1-REL_SIZE))*0.5);
-        return getInsets().top+this.jLayeredPane1.getY()+((int)Ymax - (fil+1) * (int)(Ymax/8.0)) + m;
+        return getInsets().top+this.jLayeredPane1.getY()+((int)Ymax - (fil+1) * (int)(Ymax/mida)) + m;
     }
     private class MyPanel extends JPanel {
 
@@ -284,9 +332,21 @@ public class Juga2 extends javax.swing.JFrame {
     } //GEN-LAST:event_jLayeredPane1MouseClicked
 
     private void mouCurrentPlayer(int colu) {
+        mouCurrentPlayer(colu, System.nanoTime() - iniciTorn, 0);
+    }
+
+    /**
+     * Posa la fitxa del jugador actual i l'afegeix al registre de la partida
+     *
+     * @param colu columna on tira
+     * @param temps nanosegons que ha pensat el jugador
+     * @param nodes nodes que ha explorat, 0 si no els compta
+     */
+    private void mouCurrentPlayer(int colu, long temps, long nodes) {
 
         try {
             t.afegeix(colu, currentColor);
+            registre.afegeix(colu, temps, nodes);
             repaint();
             verificaSiHaAcabat(colu, currentColor);
         } 
@@ -311,9 +371,18 @@ public class Juga2 extends javax.swing.JFrame {
 
         String text1 = "", text2 = "", text3 = "", dTitle = "";
 
-        if (t.solucio(colu, color) || !t.espotmoure()) {
+        boolean guanya = guanya(colu, color);
+        if (guanya || !t.espotmoure()) {
+            registre.setResultat(guanya ? color : 0);
+            if (fitxerPartides != null) {
+                try {
+                    registre.desa(fitxerPartides);
+                } catch (java.io.IOException ex) {
+                    java.util.logging.Logger.getLogger(Juga2.class.getName()).log(java.util.logging.Level.WARNING, null, ex);
+                }
+            }
 
-            if (t.solucio(colu, color)) {
+            if (guanya) {
                 if (currentPlayer == player1) {
                     text1 = "WINNER";
                     text3 = "LOSER";
@@ -352,10 +421,40 @@ public class Juga2 extends javax.swing.JFrame {
         mostraTornActual();
     }
 
+    /**
+     * Comprova si l'última fitxa posada a una columna fa K en línia. Amb K =
+     * 4 és el solucio del tauler; amb una altra K es compten les fitxes del
+     * color a banda i banda de la fitxa en les quatre direccions.
+     *
+     * @param colu columna on s'ha posat l'última fitxa
+     * @param color color de la fitxa
+     * @return true si el color ha guanyat
+     */
+    private boolean guanya(int colu, int color) {
+        if (k == 4) return t.solucio(colu, color);
+        int fila = mida - 1;
+        while (fila >= 0 && t.getColor(fila, colu) == 0) fila--;
+        int[][] direccions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int[] d : direccions) {
+            int enLinia = 1;
+            for (int s = -1; s <= 1; s += 2) {
+                int f = fila + s * d[0], c = colu + s * d[1];
+                while (f >= 0 && f < mida && c >= 0 && c < mida && t.getColor(f, c) == color) {
+                    enLinia++;
+                    f += s * d[0];
+                    c += s * d[1];
+                }
+            }
+            if (enLinia >= k) return true;
+        }
+        return false;
+    }
+
     class Mover extends SwingWorker<Integer, Object> {
 
         int color;
         Jugador jugador;
+        long temps; // Nanosegons que ha trigat el moviment
 
         Mover(int color, Jugador jugador) {
             this.color = color;
@@ -364,7 +463,10 @@ public class Juga2 extends javax.swing.JFrame {
 
         @Override
         public Integer doInBackground() {
-            return jugador.moviment(t, color);
+            long inici = System.nanoTime();
+            int col = jugador.moviment(t, color);
+            temps = System.nanoTime() - inici;
+            return col;
         }
 
         @Override
@@ -374,7 +476,16 @@ public class Juga2 extends javax.swing.JFrame {
                 jLayeredPane1.setBackground(new java.awt.Color(255, 255, 255));
                 jLayeredPane1.setEnabled(true);
 
-                mouCurrentPlayer(get());
+                int col = get();
+                long nodes = 0;
+                if (jugador instanceof MiniMassimo) {
+                    nodes = ((MiniMassimo) jugador).getNodesMoviment();
+                    // Mentre pensa el rival, MiniMassimo cerca la resposta a la jugada que preveu
+                    Tauler despres = new Tauler(t);
+                    despres.afegeix(col, color);
+                    ((MiniMassimo) jugador).ponderaRival(despres, color);
+                }
+                mouCurrentPlayer(col, temps, nodes);
                 repaint();
                 estaPensant = false;
             } catch (Exception ignore) {
@@ -389,8 +500,13 @@ public class Juga2 extends javax.swing.JFrame {
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, // Anti-alias!
         RenderingHints.VALUE_ANTIALIAS_ON);
         int size = (int)(Step * REL_SIZE);
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
+        if (mida != 8) { // Separacions entre columnes
+            g.setColor(Color.BLACK);
+            int x0 = getInsets().left + jLayeredPane1.getX(), y0 = getInsets().top + jLayeredPane1.getY();
+            for (int i = 0; i <= mida; i++) g.drawLine(x0 + i * Step, y0, x0 + i * Step, y0 + (int) Ymax);
+        }
+        for (int i = 0; i < mida; i++) {
+            for (int j = 0; j < mida; j++) {
                 if (t.getColor(j, i) == 1) {
                     g.setColor(Color.RED);                    
                     g.fillOval(whichx(i), whichy(j), size, size);
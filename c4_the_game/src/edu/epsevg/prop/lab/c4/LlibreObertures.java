@@ -0,0 +1,141 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * LlibreObertures: millors moviments precalculats de les primeres posicions
+ * de la partida, llegits d'un fitxer binari que genera GeneraLlibre.
+ *
+ * El fitxer es projecta a memòria amb un MappedByteBuffer i les consultes
+ * fan una cerca binària directament sobre el buffer, de manera que el llibre
+ * no es carrega mai sencer al heap. El format és una capçalera de 16 bytes
+ * (número màgic, mida del tauler, plies cobertes i nombre d'entrades) i
+ * després les entrades ordenades per clau: 8 bytes de clau i 1 byte amb la
+ * columna a tirar.
+ *
+ * La clau és el hash Zobrist canònic del tauler combinat amb el color a qui
+ * toca tirar: una posició i la seva reflexió horitzontal comparteixen
+ * entrada, i la columna es guarda en l'orientació del hash canònic. Els
+ * llibres antics, amb les dues orientacions guardades per separat, es
+ * continuen llegint bé.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class LlibreObertures {
+
+    private static final int MAGIC = 0x43344C4C; // "C4LL"
+    private static final int MIDA_CAPCALERA = 16;
+    private static final int MIDA_ENTRADA = 9;
+
+    private final MappedByteBuffer dades;
+    private final int mida, plies, entrades;
+
+    /**
+     * Constructora: projecta a memòria un fitxer de llibre
+     *
+     * @param fitxer camí del fitxer generat per GeneraLlibre
+     * @throws IOException si no es pot llegir el fitxer o no té el format d'un llibre
+     */
+    public LlibreObertures(String fitxer) throws IOException {
+        try (FileChannel canal = FileChannel.open(Paths.get(fitxer), StandardOpenOption.READ)) {
+            this.dades = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()); // La projecció continua vàlida un cop tancat el canal
+        }
+        if (dades.capacity() < MIDA_CAPCALERA || dades.getInt(0) != MAGIC) {
+            throw new IOException("El fitxer " + fitxer + " no és un llibre d'obertures");
+        }
+        this.mida = dades.getInt(4);
+        this.plies = dades.getInt(8);
+        this.entrades = dades.getInt(12);
+        if (dades.capacity() != MIDA_CAPCALERA + (long) entrades * MIDA_ENTRADA) {
+            throw new IOException("El llibre " + fitxer + " està truncat");
+        }
+    }
+
+    /**
+     * Clau d'una posició al llibre
+     *
+     * @param tauler posició, amb el torn del jugador que ha de tirar
+     * @return hash canònic de la posició combinat amb el color a qui toca tirar
+     */
+    public static long clau(TaulerBits tauler) {
+        return tauler.getHashCanonic() ^ (tauler.getTorn() == 1 ? 0 : MiniMassimo.CLAU_COLOR_NEGATIU);
+    }
+
+    /**
+     * Busca el moviment del llibre per a una posició
+     *
+     * @param tauler posició, amb el torn del jugador que ha de tirar
+     * @return columna on s'ha de tirar, -1 si la posició no és al llibre
+     */
+    public int cerca(TaulerBits tauler) {
+        if (tauler.getAmplada() != mida || tauler.getAlcada() != mida || tauler.getK() != TaulerBits.K_PER_DEFECTE) return -1;
+        long clau = clau(tauler);
+        int baix = 0, dalt = entrades - 1;
+        while (baix <= dalt) {
+            int mig = (baix + dalt) >>> 1;
+            int posicio = MIDA_CAPCALERA + mig * MIDA_ENTRADA;
+            int c = Long.compare(dades.getLong(posicio), clau);
+            if (c == 0) return tauler.columnaCanonica(dades.get(posicio + 8));
+            if (c < 0) baix = mig + 1;
+            else dalt = mig - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Getter de la mida del tauler del llibre
+     *
+     * @return nombre de files i columnes dels taulers del llibre
+     */
+    public int getMida() {
+        return mida;
+    }
+
+    /**
+     * Getter del nombre de plies que cobreix el llibre
+     *
+     * @return nombre màxim de fitxes de les posicions del llibre
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    /**
+     * Getter del nombre d'entrades
+     *
+     * @return nombre de posicions del llibre
+     */
+    public int getEntrades() {
+        return entrades;
+    }
+
+    /**
+     * Escriu un fitxer de llibre
+     *
+     * @param fitxer camí del fitxer a escriure
+     * @param mida mida del tauler de les posicions
+     * @param plies nombre màxim de fitxes de les posicions
+     * @param moviments columna a tirar per a cada clau, en l'orientació canònica (TaulerBits.columnaCanonica), ordenades com Long.compare
+     * @throws IOException si no es pot escriure el fitxer
+     */
+    public static void escriu(String fitxer, int mida, int plies, SortedMap<Long, Integer> moviments) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MIDA_CAPCALERA + moviments.size() * MIDA_ENTRADA);
+        buffer.putInt(MAGIC).putInt(mida).putInt(plies).putInt(moviments.size());
+        for (Map.Entry<Long, Integer> e : moviments.entrySet()) {
+            buffer.putLong(e.getKey()).put((byte) (int) e.getValue());
+        }
+        buffer.flip();
+        try (FileChannel canal = FileChannel.open(Paths.get(fitxer), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) canal.write(buffer);
+        }
+    }
+}
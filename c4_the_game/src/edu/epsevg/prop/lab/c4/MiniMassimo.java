@@ -1,9 +1,17 @@
 package edu.epsevg.prop.lab.c4;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * MiniMassimo: Jugador de Connecta 4 utilitzant Minimax amb poda alfa-beta.
@@ -15,8 +23,61 @@ public class MiniMassimo implements Jugador, IAuto {
 
     private final String nom;
     private final boolean poda, ordenacio;
-    private final int profunditatMaxima;
-    private int nodesTotalsExplorats, nodesExploratsMoviment;
+    private int profunditatMaxima;
+    private long nodesTotalsExplorats;
+    private EstadistiquesCerca estadistiques; // Mètriques de l'últim moviment, null si encara no n'ha fet cap
+    private final TaulaTransposicio taula; // null si no es fa servir taula de transposició
+    private long clauColor; // Es combina amb el hash perquè els valors depenen del color per al que s'avalua
+    private long tempsPerMoviment; // Mil·lisegons per moviment, 0 si es cerca a profunditat fixa
+    private long instantLimit; // Instant (System.nanoTime) en què s'ha d'aturar la cerca
+    private boolean controlTemps;
+    private volatile boolean tempsEsgotat; // Els fils de la cerca paral·lela també l'han de veure
+    private volatile boolean aturadaExterna; // Algú de fora ha demanat acabar la cerca amb aturada(true)
+    private long iniciMoviment; // Instant (System.nanoTime) en què ha començat el moviment en curs
+    private ObservadorCerca observador; // null si ningú vol saber com avança l'aprofundiment iteratiu
+    private int profunditatAssolida, valorArrel;
+    private ForkJoinPool pool; // null si la cerca és d'un sol fil
+    private ExecutorService ajudants; // Fils de Lazy SMP, null si no se'n fan servir
+    private int nAjudants;
+    private volatile boolean aturaAjudants;
+    private long[] nodesPerFil = new long[1]; // Nodes de l'últim moviment: fil principal i després cada ajudant
+    private boolean pvs; // Cercar amb negamax i PVS en lloc del minimax original
+    private boolean tactica = true; // Mirar victòries immediates i amenaces abans d'expandir cada node
+    private boolean simetria = true; // Una posició i la seva reflexió comparteixen entrada a les taules
+    private int k = TaulerBits.K_PER_DEFECTE; // Fitxes en línia per guanyar als taulers de la llibreria
+    private LlibreObertures llibre; // null si no es fa servir llibre d'obertures
+    private int llindarFinal = LLINDAR_FINAL_PER_DEFECTE; // Caselles buides a partir de les quals es resol la posició, 0 per no fer-ho
+    private final TaulaTransposicio taulaFinal = new TaulaTransposicio(1 << 16); // Resultats exactes del solucionador de finals
+    private ExecutorService ponderador; // Fil que cerca durant el torn del rival, null si no es pondera
+    private volatile boolean aturaPonderacio;
+    private Future<Integer> tascaPonderacio; // Ponderació en marxa, null si no n'hi ha cap
+    private long hashPonderat; // Hash de la posició que s'ha previst després del moviment del rival
+
+    /** Nombre d'entrades de la taula de transposició si no se n'indica cap */
+    public static final int MIDA_TAULA_PER_DEFECTE = 1 << 20;
+    static final long CLAU_COLOR_NEGATIU = 0x9E3779B97F4A7C15L;
+    private static final int INFINIT = Integer.MAX_VALUE; // -INFINIT es pot negar sense desbordar, Integer.MIN_VALUE no
+    /** Caselles buides per sota de les quals es resol la posició si no se n'indica cap altre llindar */
+    public static final int LLINDAR_FINAL_PER_DEFECTE = 20;
+    private static final int GUANYA = -2, PERD = -3; // Resultats de la presserca tàctica que no són una columna
+    private static final int FINESTRA_ASPIRACIO = 60; // Amplada a cada costat del valor de la iteració anterior
+
+    /**
+     * Rep el resultat de cada iteració acabada de l'aprofundiment iteratiu
+     */
+    public interface ObservadorCerca {
+
+        /**
+         * S'ha acabat una iteració
+         *
+         * @param profunditat profunditat de la iteració
+         * @param valor valor de la posició per al jugador que mou
+         * @param columna millor moviment de la iteració
+         * @param nodes nodes explorats pel fil principal des de l'inici del moviment
+         * @param temps nanosegons des de l'inici del moviment
+         */
+        void iteracio(int profunditat, int valor, int columna, long nodes, long temps);
+    }
 
     /**
      * Constructora
@@ -26,12 +87,40 @@ public class MiniMassimo implements Jugador, IAuto {
      * @param ordenacio true si volem ordenar les columnes per realitzar moviments, false si no
      */
     public MiniMassimo(int d, boolean poda, boolean ordenacio) {
+        this(d, poda, ordenacio, MIDA_TAULA_PER_DEFECTE);
+    }
+
+    /**
+     * Constructora amb la mida de la taula de transposició
+     *
+     * @param d correspon a la profunditat màxima a la que volem que arribi el jugador
+     * @param poda true si volem que el minimax utilitzi poda, false si no
+     * @param ordenacio true si volem ordenar les columnes per realitzar moviments, false si no
+     * @param midaTaula nombre d'entrades de la taula de transposició, 0 per no fer-ne servir
+     */
+    public MiniMassimo(int d, boolean poda, boolean ordenacio, int midaTaula) {
+        this(d, poda, ordenacio, midaTaula, 0);
+    }
+
+    /**
+     * Constructora amb temps per moviment. Si el temps és més gran que 0, el
+     * jugador fa aprofundiment iteratiu fins que s'acaba el temps, i d només
+     * limita la profunditat màxima.
+     *
+     * @param d correspon a la profunditat màxima a la que volem que arribi el jugador
+     * @param poda true si volem que el minimax utilitzi poda, false si no
+     * @param ordenacio true si volem ordenar les columnes per realitzar moviments, false si no
+     * @param midaTaula nombre d'entrades de la taula de transposició, 0 per no fer-ne servir
+     * @param tempsMs mil·lisegons que pot pensar cada moviment, 0 per cercar sempre a profunditat d
+     */
+    public MiniMassimo(int d, boolean poda, boolean ordenacio, int midaTaula, long tempsMs) {
         this.nodesTotalsExplorats = 0;
-        this.nodesExploratsMoviment = 0;
         this.profunditatMaxima = d;
         this.nom = "MiniMassimo";
         this.poda = poda;
         this.ordenacio = ordenacio;
+        this.taula = midaTaula > 0 ? new TaulaTransposicio(midaTaula) : null;
+        this.tempsPerMoviment = tempsMs;
     }
 
     /**
@@ -44,89 +133,265 @@ public class MiniMassimo implements Jugador, IAuto {
      */
     @Override
     public int moviment(Tauler t, int color) {
+        return moviment(new TaulerBits(t, color, k)); //Passar el tauler a bitboards un sol cop; tota la cerca mou i desfà sobre aquesta instància
+    }
+
+    /**
+     * Calcula el moviment a fer en un tauler de qualsevol mida fins a 16x16
+     * i amb les fitxes en línia per guanyar que porti el tauler. En acabar,
+     * el tauler queda com estava.
+     *
+     * @param tauler posició, amb el torn del jugador que ha de tirar
+     * @return la columna del millor moviment
+     */
+    public int moviment(TaulerBits tauler) {
+        EventMoviment event = new EventMoviment();
+        event.begin();
+        long inici = System.nanoTime();
+        iniciMoviment = inici;
+        int color = tauler.getTorn();
+        int ponderat = recullPonderacio(tauler);
+        if (ponderat >= 0) { //El rival ha fet el moviment previst i la ponderació ja ha acabat la cerca
+            return registra(event, inici, EstadistiquesCerca.PONDERACIO, ponderat, 0, null);
+        }
+        if (llibre != null) { //Les posicions del llibre ja tenen el moviment calculat i no cal cercar
+            int col = llibre.cerca(tauler);
+            if (col >= 0 && tauler.movpossible(col)) {
+                return registra(event, inici, EstadistiquesCerca.LLIBRE, col, 0, null);
+            }
+        }
+        clauColor = color == 1 ? 0 : CLAU_COLOR_NEGATIU;
+        if (taula != null) taula.novaCerca();
+        int[] buffer = new int[tauler.getAmplada()];
+        int[] moviments = Arrays.copyOf(buffer, getMovimentsValids(tauler, buffer)); //Obtenir tots els moviments possibles amb el tauler actual, ja ordenats si cal
+
+        Cerca cerca = new Cerca(tauler, false);
+        int millorMoviment = -1;
+        boolean resolt = false;
+        if (tauler.getCasellesBuides() <= llindarFinal) {
+            // Prop del final l'arbre és prou petit per resoldre'l sencer. Amb
+            // temps per moviment, el solucionador en pot fer servir la meitat; si
+            // no acaba, es fa la cerca normal amb el temps que queda.
+            controlTemps = tempsPerMoviment > 0;
+            instantLimit = inici + tempsPerMoviment * 500000L;
+            tempsEsgotat = false;
+            millorMoviment = cerca.resolArrel(moviments);
+            resolt = millorMoviment >= 0;
+            controlTemps = false;
+            tempsEsgotat = false;
+        }
+        instantLimit = inici + tempsPerMoviment * 1000000L;
+
+        // Si el solucionador ja té el moviment, no cal llançar els ajudants
+        List<Future<Cerca>> tasquesAjudants = resolt ? new ArrayList<Future<Cerca>>()
+                : llancaAjudants(tauler, color, moviments);
+        if (resolt) {
+            // Ja tenim el moviment
+        } else if (tempsPerMoviment > 0) {
+            millorMoviment = aprofundimentIteratiu(cerca, color, moviments);
+        } else {
+            millorMoviment = cercaArrel(cerca, profunditatMaxima, color, moviments, -INFINIT, INFINIT);
+        }
+        recullAjudants(cerca, tasquesAjudants);
+
+        if (resolt) {
+            return registra(event, inici, EstadistiquesCerca.SOLUCIO, millorMoviment, tauler.getCasellesBuides(), cerca);
+        }
+        int profunditat = tempsPerMoviment > 0 ? profunditatAssolida : Math.min(profunditatMaxima, tauler.getCasellesBuides());
+        return registra(event, inici, EstadistiquesCerca.CERCA, millorMoviment, profunditat, cerca);
+    }
+
+    /**
+     * Guarda les mètriques del moviment que s'acaba de triar i, si hi ha
+     * un enregistrament de Flight Recorder actiu, les hi envia
+     *
+     * @param event esdeveniment començat a l'inici del moviment
+     * @param inici instant (System.nanoTime) en què ha començat el moviment
+     * @param origen d'on ha sortit el moviment, una de les constants de EstadistiquesCerca
+     * @param columna columna triada
+     * @param profunditat profunditat de l'última cerca completa
+     * @param cerca cerca del fil principal amb els comptadors de tots els fils, null si no s'ha cercat
+     * @return la columna triada
+     */
+    private int registra(EventMoviment event, long inici, String origen, int columna, int profunditat, Cerca cerca) {
+        int valor = origen.equals(EstadistiquesCerca.SOLUCIO) ? Integer.signum(valorArrel) * 1000000 : valorArrel;
+        estadistiques = cerca == null
+                ? new EstadistiquesCerca(origen, columna, profunditat, 0, System.nanoTime() - inici, 0, 0, 0, 0, 0, 0)
+                : new EstadistiquesCerca(origen, columna, profunditat, valor, System.nanoTime() - inici, cerca.nodes,
+                        cerca.nodesInteriors, cerca.talls, cerca.tallsPrimerMoviment, cerca.consultesTaula, cerca.encertsTaula);
+        nodesTotalsExplorats += estadistiques.getNodes();
+        event.end();
+        if (event.shouldCommit()) {
+            event.origen = origen;
+            event.columna = columna;
+            event.profunditat = profunditat;
+            event.valor = estadistiques.getValor();
+            event.nodes = estadistiques.getNodes();
+            event.nodesPerSegon = estadistiques.getNodesPerSegon();
+            event.taxaTalls = estadistiques.getTaxaTalls();
+            event.percentatgeTallsPrimerMoviment = estadistiques.getPercentatgeTallsPrimerMoviment();
+            event.factorRamificacio = estadistiques.getFactorRamificacio();
+            event.consultesTaula = estadistiques.getConsultesTaula();
+            event.encertsTaula = estadistiques.getEncertsTaula();
+            event.commit();
+        }
+        return columna;
+    }
+
+    /**
+     * Cerca amb profunditat 1, 2, 3... fins que s'acaba el temps per moviment
+     * o s'arriba a la profunditat màxima. Cada iteració prova primer el millor
+     * moviment de l'anterior, i la taula de transposició li dona l'ordre dels
+     * nodes interiors.
+     *
+     * Amb PVS, cada iteració comença amb una finestra d'aspiració al voltant
+     * del valor de l'anterior; si el valor en surt, es torna a cercar obrint
+     * el costat per on ha fallat.
+     *
+     * @param cerca estat de la cerca del fil principal, amb el tauler des del que es mou
+     * @param color color del nostre jugador
+     * @param moviments columnes on es pot tirar, en l'ordre inicial
+     * @return la columna del millor moviment de l'última iteració acabada, amb el seu valor a valorArrel; el límit de temps és instantLimit
+     */
+    private int aprofundimentIteratiu(Cerca cerca, int color, int[] moviments) {
+        tempsEsgotat = false;
+        int millorMoviment = moviments[0];
+        int valor = 0;
+        profunditatAssolida = 0;
+        int maxima = Math.min(profunditatMaxima, cerca.tauler.getCasellesBuides()); // Més enllà d'omplir el tauler no hi ha res a cercar
+
+        for (int p = 1; p <= maxima; p++) {
+            controlTemps = p > 1; // La primera iteració s'acaba sempre per tenir un moviment
+            int alpha = -INFINIT, beta = INFINIT;
+            if (pvs && pool == null && p > 1 && Math.abs(valorArrel) < 1000000) {
+                alpha = valorArrel - FINESTRA_ASPIRACIO;
+                beta = valorArrel + FINESTRA_ASPIRACIO;
+            }
+            int moviment = cercaArrel(cerca, p, color, moviments, alpha, beta);
+            while (!tempsEsgotat && (valorArrel <= alpha || valorArrel >= beta)) {
+                if (valorArrel <= alpha) alpha = -INFINIT;
+                else beta = INFINIT;
+                moviment = cercaArrel(cerca, p, color, moviments, alpha, beta);
+            }
+            if (tempsEsgotat) break; // Iteració a mitges: es descarta i es queda la de l'anterior
+            millorMoviment = moviment;
+            valor = valorArrel;
+            profunditatAssolida = p;
+            posarPrimer(moviments, moviments.length, millorMoviment);
+            if (observador != null) observador.iteracio(p, valor, millorMoviment, cerca.nodes, System.nanoTime() - iniciMoviment);
+            if (Math.abs(valorArrel) >= 1000000 || aturadaExterna || System.nanoTime() >= instantLimit) {
+                break; // Victòria o derrota segura, o no queda temps per a una altra iteració
+            }
+        }
+        controlTemps = false;
+        valorArrel = valor; // El de l'última iteració acabada, no el de la que s'ha tallat
+        return millorMoviment;
+    }
+
+    /**
+     * Avalua cada moviment de l'arrel amb minimax a una profunditat donada.
+     * Amb PVS, només el primer moviment es cerca amb la finestra sencera i la
+     * resta amb finestra nul·la, tornant a cercar els que la superen.
+     *
+     * @param cerca estat de la cerca del fil principal, amb el tauler des del que es mou
+     * @param profunditat profunditat de la cerca, comptant el moviment de l'arrel
+     * @param color color del nostre jugador
+     * @param moviments columnes a provar, en ordre
+     * @param alpha límit inferior de la finestra (només amb PVS i un sol fil)
+     * @param beta límit superior de la finestra (només amb PVS i un sol fil)
+     * @return la columna amb millor valor heurístic; el valor es deixa a valorArrel
+     */
+    private int cercaArrel(Cerca cerca, int profunditat, int color, int[] moviments, int alpha, int beta) {
+        if (pool != null && moviments.length > 1 && !cerca.ponderant) {
+            return cercaArrelParallela(cerca, profunditat, color, moviments);
+        }
+        if (!pvs) { // El minimax original cerca sempre cada moviment de l'arrel amb la finestra sencera
+            alpha = Integer.MIN_VALUE;
+            beta = Integer.MAX_VALUE;
+        }
         int millorMoviment = -1; //No hi ha millor moviment inicialment
         int millorValor = Integer.MIN_VALUE;
-        List<Integer> moviments = getMovimentsValids(t); //Obtenir tots els moviments possibles amb el tauler actual
-        if(ordenacio) ordenarMoviments(moviments, t); //Ordenar els indexs de les columnes per afavorir la poda alfa-beta
-        for (int col : moviments) {
-            Tauler nouTauler = new Tauler(t);
-            nouTauler.afegeix(col, color); //Per cada moviment possible, crear una copia del tauler i afegir-li la peça
-            int valorMoviment = minimax(nouTauler, profunditatMaxima - 1, false, color, Integer.MIN_VALUE, Integer.MAX_VALUE); //avaluar el nou tauler per obtenir el valro heurístic del moviment
+        for (int i = 0; i < moviments.length; i++) {
+            int col = moviments[i];
+            cerca.tauler.makeMove(col); //Per cada moviment possible, afegir la peça al tauler
+            int valorMoviment; //avaluar el nou tauler per obtenir el valor heurístic del moviment
+            if (!pvs || i == 0) {
+                valorMoviment = cerca.valorFill(profunditat - 1, color, alpha, beta);
+            } else {
+                valorMoviment = cerca.valorFill(profunditat - 1, color, alpha, alpha + 1);
+                if (valorMoviment > alpha && valorMoviment < beta) {
+                    valorMoviment = cerca.valorFill(profunditat - 1, color, alpha, beta);
+                }
+            }
+            cerca.tauler.unmakeMove(col); //Deixar el tauler com estava abans de provar el següent moviment
+            if (cerca.aturada()) break;
             if (valorMoviment > millorValor) { //Si s'obté un millor valor heurístic pel nou tauler, actualitzar les variables del valor i la columna 
                 millorValor = valorMoviment;
                 millorMoviment = col;
             }
+            if (pvs) {
+                alpha = Math.max(alpha, valorMoviment);
+                if (alpha >= beta) break; // Supera la finestra d'aspiració: es tornarà a cercar
+            }
         }
-        nodesTotalsExplorats += nodesExploratsMoviment;
-        System.out.println("Nodes explorats per fer el moviment: " + nodesExploratsMoviment + "; Total = " + nodesTotalsExplorats);
-        nodesExploratsMoviment = 0;
+        valorArrel = millorValor;
         return millorMoviment;
     }
 
     /**
-     * Implementa l'algoritme Minimax amb poda alfa-beta.
+     * Versió paral·lela de cercaArrel. El primer moviment es cerca sol per
+     * tenir una alfa inicial i la resta es reparteixen entre els fils del pool,
+     * cadascun amb la seva còpia del tauler. Els fils comparteixen la millor
+     * alfa trobada i la taula de transposició.
      *
-     * @param tauler L'estat actual del joc.
-     * @param profunditat El nivell del moviment.
-     * @param maximitzant True si estem maximitzant (serà un torn del nostre jugador), false si estem minimitzant
-     * @param color El color del nostre jugador
-     * @param alpha El valor alfa per a la poda (millor opció del maximitzador).
-     * @param beta El valor beta per a la poda (millor opció del minimitzador).
-     * @return el millor valor heurístic trobat per al moviment actual.
+     * Cada fill es cerca amb alfa - 1 perquè un moviment que empati amb el
+     * millor també tingui valor exacte; així el resultat no depèn de l'ordre
+     * en què acaben els fils i és el mateix moviment que triaria la cerca
+     * seqüencial (el primer amb el valor màxim).
+     *
+     * @param cerca estat de la cerca del fil principal, amb el tauler des del que es mou
+     * @param profunditat profunditat de la cerca, comptant el moviment de l'arrel
+     * @param color color del nostre jugador
+     * @param moviments columnes a provar, en ordre
+     * @return la columna amb millor valor heurístic; el valor es deixa a valorArrel
      */
-    private int minimax(Tauler tauler, int profunditat, boolean maximitzant, int color, int alpha, int beta) {
-        int resultat = avaluarTauler(tauler, color); //Obtenir valor heurístic pel tauler
-
-        this.nodesExploratsMoviment++; // Incrementa el comptador de nodes explorats
+    private int cercaArrelParallela(final Cerca cerca, final int profunditat, final int color, int[] moviments) {
+        int n = moviments.length;
+        int primer = moviments[0];
+        cerca.tauler.makeMove(primer);
+        int millorValor = cerca.valorFill(profunditat - 1, color, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        cerca.tauler.unmakeMove(primer);
+        int millorMoviment = primer;
+        if (tempsEsgotat) return millorMoviment;
 
-        //Si s'ha arribat a la profunditat màxima, s'ha guanyat o estan totes les columnes plenes retorna el resultat
-        if (profunditat == 0 || Math.abs(resultat) >= 1000000 || !tauler.espotmoure()) {
-            return resultat;
+        final AtomicInteger alphaCompartida = new AtomicInteger(millorValor);
+        List<ForkJoinTask<Cerca>> tasques = new ArrayList<>(n - 1);
+        for (int i = 1; i < n; i++) {
+            final int col = moviments[i];
+            tasques.add(pool.submit(new Callable<Cerca>() {
+                @Override
+                public Cerca call() {
+                    Cerca fill = new Cerca(new TaulerBits(cerca.tauler), false);
+                    fill.tauler.makeMove(col);
+                    fill.alphaFill = poda ? alphaCompartida.get() - 1 : Integer.MIN_VALUE;
+                    fill.valorFill = fill.valorFill(profunditat - 1, color, fill.alphaFill, Integer.MAX_VALUE);
+                    if (fill.valorFill > fill.alphaFill) alphaCompartida.accumulateAndGet(fill.valorFill, Math::max);
+                    return fill;
+                }
+            }));
         }
 
-        // Si és el torn del maximitzador (el nostre jugador):
-        if (maximitzant) {
-            int maxValor = Integer.MIN_VALUE; // Inicialitza el valor màxim a un valor molt baix.
-            List<Integer> moviments = getMovimentsValids(tauler); // Obté les columnes disponibles per moure.
-            if(ordenacio) ordenarMoviments(moviments, tauler);
-            // Prova cada moviment disponible.
-            for (int col : moviments) {
-                Tauler nouTauler = new Tauler(tauler); // Crea una còpia del tauler per simular el moviment.
-                nouTauler.afegeix(col, color); // Afegeix una peça del jugador actual en la columna seleccionada.
-                // Avalua el moviment recursivament, passant al torn del minimitzador.
-                int valor = minimax(nouTauler, profunditat - 1, false, color, alpha, beta);
-                maxValor = Math.max(maxValor, valor); // Actualitza el valor màxim trobat fins ara. // Actualitza el límit alfa (millor opció coneguda per al maximitzador).
-                alpha = Math.max(alpha, valor);
-                // Poda beta: si el valor actual és millor que el límit beta, s'atura l'exploració.
-                if (poda && beta <= alpha) {
-                    break; // Poda beta
-                }
-            }
-            return maxValor; // Retorna el millor valor trobat per al maximitzador.
-        } else { // Si és el torn de l'oponent:
-            int minValor = Integer.MAX_VALUE; // Inicialitza el valor mínim a un valor molt alt.
-            int oponentColor = -color; // Color de l'oponent.
-            List<Integer> moviments = getMovimentsValids(tauler); // Obté els moviments disponibles
-            if(ordenacio)ordenarMoviments(moviments, tauler);
-
-            // Prova cada moviment disponible.
-            for (int col : moviments) {
-                // Crea una còpia del tauler per simular el moviment de l'oponent.
-                Tauler nouTauler = new Tauler(tauler);
-                nouTauler.afegeix(col, oponentColor); // Afegeix una peça de l'oponent.
-                // Avalua el moviment recursivament, passant al torn del maximitzador.
-                int valor = minimax(nouTauler, profunditat - 1, true, color, alpha, beta);
-                // Actualitza el valor mínim trobat fins ara.
-                minValor = Math.min(minValor, valor);
-                // Actualitza el límit beta (millor opció coneguda per al minimitzador).
-                beta = Math.min(beta, valor);
-                // Poda alfa: si el valor actual és pitjor que el límit alfa, s'atura l'exploració.
-                if (poda && beta <= alpha) {
-                    break; // Poda alfa
-                }
+        for (int i = 1; i < n; i++) {
+            Cerca fill = tasques.get(i - 1).join();
+            cerca.suma(fill);
+            // Si no supera la seva alfa, el valor és només una cota i el moviment no pot ser el millor
+            if (fill.valorFill > fill.alphaFill && fill.valorFill > millorValor) {
+                millorValor = fill.valorFill;
+                millorMoviment = moviments[i];
             }
-            return minValor; // Retorna el millor valor trobat per al minimitzador.
         }
+        valorArrel = millorValor;
+        return millorMoviment;
     }
 
     /**
@@ -137,15 +402,13 @@ public class MiniMassimo implements Jugador, IAuto {
      * @param color el color del nostre jugador
      * @return heurística del tauler analitzat
      */
-    private int avaluarTauler(Tauler tauler, int color) {
+    int avaluarTauler(TaulerBits tauler, int color) {
 
-        //Verificar si hem guanyat
-        if (haGuanyat(tauler, color)) {
-            return 1000000; //Si guanyem l'heurística és molt bona
-        }
-        //Verificar si l'oponent ha guanyat
-        if (haGuanyat(tauler, -color)) {
-            return -1000000; //Si perdem, l'heurística és molt dolenta
+        //Només l'últim moviment pot haver fet guanyar, i l'ha fet el jugador que no té el torn
+        int ultimColor = -tauler.getTorn();
+        if (haGuanyat(tauler, ultimColor)) {
+            //Si guanyem l'heurística és molt bona, si perdem és molt dolenta
+            return ultimColor == color ? 1000000 : -1000000;
         }
         //Calcular heurística segons l'estat del tauler
         return avaluarPosicio(tauler, color);
@@ -153,183 +416,465 @@ public class MiniMassimo implements Jugador, IAuto {
 
     /**
      * Avalua un tauler i retorna un valor heurístic tenint en compte totes 
-     * les possibles finestres de 4 fitxes.
+     * les possibles finestres de K fitxes.
      * 
      * @param tauler tauler a analitzar
      * @param color el color del nostre jugador
      * @return la suma de puntuacions de totes les finestres possibles dins del tauler
      */
-    private int avaluarPosicio(Tauler tauler, int color) {
-        int puntuacio = 0;
-        int centre = tauler.getMida() / 2;
-
+    int avaluarPosicio(TaulerBits tauler, int color) {
         // Prioritzar el control de la columna central.
-        for (int fila = 0; fila < tauler.getMida(); fila++) {
-            // Suma puntuació si una cel·la de la columna central conté el color del jugador.
-            if (tauler.getColor(fila, centre) == color) puntuacio += 6;
-        }
-
-        // Definim els desplaçaments per a cada direcció: horitzontal, vertical, diagonal ascendent (/) i diagonal descendent (\).
-        int[][] direccions = {
-            {0, 1}, // Horitzontal (dreta)
-            {1, 0}, // Vertical (avall)
-            {1, 1}, // Diagonal positiva (\)
-            {-1, 1} // Diagonal negativa (/)
-        };
-
-        for (int[] direccio : direccions) {
-            int dFila = direccio[0];
-            int dCol = direccio[1];
-            for (int fila = 0; fila < tauler.getMida(); fila++) {
-                for (int col = 0; col < tauler.getMida(); col++) {
-                    // Comprovem si és possible formar una finestra de 4 a partir d'aquest punt.
-                    if (fila + 3 * dFila >= 0 && fila + 3 * dFila < tauler.getMida() && col + 3 * dCol >= 0 && col + 3 * dCol < tauler.getMida()) {
-                        int[] finestra = new int[4];
-                        for (int i = 0; i < 4; i++) finestra[i] = tauler.getColor(fila + i * dFila, col + i * dCol);
-                        puntuacio += avaluarFinestra(finestra, color); // Avalua la finestra i suma la puntuació.
-                    }
-                }
-            }
-        }
+        int puntuacio = 6 * tauler.getFitxesCentrals(color);
+
+        // Finestres a les que falten 1 o 2 fitxes nostres (amb K = 4, que en tenen 3 o 2) i la resta
+        // buides. El tauler ja porta el recompte al dia a cada moviment, no cal recórrer-lo.
+        puntuacio += 100 * tauler.getFinestresFaltaUna(color) + 10 * tauler.getFinestresFaltenDues(color);
+
+        // Disminueix la puntuació per cada finestra a la que només falta una fitxa de l'oponent.
+        puntuacio -= 80 * tauler.getFinestresFaltaUna(-color);
+
         return puntuacio;
     }
 
     /**
-     * Avalua una finestra específica de 4 cel·les i calcula una puntuació
-     * basada en el contingut d'aquestes cel·les per al jugador i l'oponent.
+     * Hash amb què es busca una posició a les taules de transposició. Porta
+     * les mides i K del tauler, perquè el mateix jugador pot cercar taulers
+     * de regles diferents.
      *
-     * @param finestra array de 4 enters que representen les cel·les a
-     * analitzar.
-     * @param color el color del nostre jugador.
-     * @return puntuació calculada per a aquesta finestra.
+     * @param tauler posició
+     * @return hash canònic amb simetria, el hash de la posició sense, combinat amb la clau de les regles
      */
-    private int avaluarFinestra(int[] finestra, int color) {
-        int puntuacio = 0;
-        int oponentColor = -color; // Especifica el color de l'oponent.
-        int conteigColor = 0; // Comptador de cel·les ocupades pel jugador.
-        int conteigBuit = 0; // Comptador de cel·les buides.
-        int conteigOponent = 0; // Comptador de cel·les ocupades per l'oponent.
+    long clauTaula(TaulerBits tauler) {
+        return (simetria ? tauler.getHashCanonic() : tauler.getHash()) ^ tauler.getClauRegles();
+    }
 
-        // Itera les caselles de la finestra i compta els tipus de valors.
-        for (int casella : finestra) {
-            if (casella == color) {
-                conteigColor++;
-            } else if (casella == oponentColor) {
-                conteigOponent++;
-            } else {
-                conteigBuit++;
-            }
-        }
+    /**
+     * Passa una columna entre l'orientació de la posició i la de la seva
+     * entrada a la taula. Sense simetria les dues coincideixen.
+     *
+     * @param tauler posició
+     * @param col columna, o -1 si no n'hi ha cap
+     * @return la columna en l'altra orientació
+     */
+    int orienta(TaulerBits tauler, int col) {
+        return simetria ? tauler.columnaCanonica(col) : col;
+    }
 
-        // Si totes les cel·les són del jugador, atorga la puntuació per guanyar.
-        if (conteigColor == 4) {
-            puntuacio += 1000000;
-            // Si el jugador té 3 cel·les i una buida, atorga una puntuació alta.
-        } else if (conteigColor == 3 && conteigBuit == 1) {
-            puntuacio += 100;
-            // Si el jugador té 2 cel·les i dues buides, atorga una puntuació positiva però menor.
-        } else if (conteigColor == 2 && conteigBuit == 2) {
-            puntuacio += 10;
-        }
+    /**
+     * Comprova si el color indicat ha guanyat amb l'últim moviment del
+     * tauler, mirant només les línies que passen per la fitxa que s'hi ha posat
+     *
+     * @param tauler tauler a analitzar
+     * @param color color del jugador que ha fet l'últim moviment
+     * @return true si el color indicat ha guanyat, false si no ho ha fet
+     */
+    boolean haGuanyat(TaulerBits tauler, int color) {
+        int cella = tauler.getUltimaCella();
+        return cella >= 0 && tauler.guanyaPer(cella, color);
+    }
 
-        // Disminueix la puntuació si l'oponent té 3 cel·les i una buida.
-        if (conteigOponent == 3 && conteigBuit == 1) {
-            puntuacio -= 80;
+    /**
+     * Comprova a quines columnes es pot posar una fitxa i les escriu en un
+     * buffer. Amb ordenació, les columnes surten ja de la més propera a la
+     * més allunyada del centre, per afavorir la poda alfa-beta.
+     *
+     * @param tauler tauler des del que es vol fer el moviment
+     * @param moviments buffer on s'escriuen les columnes, de mida com a mínim el nombre de columnes
+     * @return nombre de columnes on es pot llançar una fitxa
+     */
+    int getMovimentsValids(TaulerBits tauler, int[] moviments) {
+        int[] ordre = tauler.getOrdreCentre();
+        int n = 0;
+        //Per cada columna, si es pot fer un moviment, s'afegeix al buffer
+        for (int i = 0; i < ordre.length; i++) {
+            int col = ordenacio ? ordre[i] : i;
+            if (tauler.movpossible(col)) {
+                moviments[n++] = col;
+            }
         }
+        return n;
+    }
 
-        return puntuacio; // Retorna la puntuació final de la finestra.
+    /**
+     * Mou una columna al principi dels moviments, si hi és, sense canviar
+     * l'ordre de la resta
+     *
+     * @param moviments columnes on es pot tirar
+     * @param n nombre de columnes vàlides del buffer
+     * @param col columna que s'ha de provar primer
+     */
+    private void posarPrimer(int[] moviments, int n, int col) {
+        for (int i = 0; i < n; i++) {
+            if (moviments[i] == col) {
+                System.arraycopy(moviments, 0, moviments, 1, i);
+                moviments[0] = col;
+                return;
+            }
+        }
     }
 
     /**
-     * Comprova si el color indicat guanya al tauler a analitzar
+     * Posa en marxa els ajudants de Lazy SMP, si n'hi ha. Cada ajudant fa la
+     * mateixa cerca iterativa que el fil principal sobre la seva còpia del
+     * tauler, però comença a una profunditat diferent i prova els moviments de
+     * l'arrel en un altre ordre. No retornen cap moviment: només omplen la
+     * taula de transposició compartida, que el fil principal aprofita.
      *
-     * @param tauler tauler a analitzar
-     * @param color color del jugador
-     * @return true si el color indicat ha guanyat, false si no ho ha fet
+     * @param tauler tauler des del que es mou; es copia abans que el fil principal el toqui
+     * @param color color del nostre jugador
+     * @param moviments columnes on es pot tirar, en l'ordre del fil principal
+     * @return les tasques dels ajudants, buida si no n'hi ha
      */
-    private boolean haGuanyat(Tauler tauler, int color) {
-        // Verificar totes les posicions del tauler per detectar una victoria
-        for (int fila = 0; fila < tauler.getMida(); fila++) {
-            for (int col = 0; col < tauler.getMida(); col++) {
-                if (tauler.getColor(fila, col) == color) {
-                    if (verificarDireccio(tauler, fila, col, 1, 0, color)) {
-                        return true; // Horitzontal -
-                    }
-                    if (verificarDireccio(tauler, fila, col, 0, 1, color)) {
-                        return true; // Vertical |
-                    }
-                    if (verificarDireccio(tauler, fila, col, 1, 1, color)) {
-                        return true; // Diagonal \
-                    }
-                    if (verificarDireccio(tauler, fila, col, 1, -1, color)) {
-                        return true; // Diagonal /
+    private List<Future<Cerca>> llancaAjudants(TaulerBits tauler, final int color, int[] moviments) {
+        List<Future<Cerca>> tasques = new ArrayList<>(nAjudants);
+        if (nAjudants == 0 || taula == null) return tasques; // Sense taula compartida els ajudants no aporten res
+        aturaAjudants = false;
+        final int maxima = Math.min(profunditatMaxima, tauler.getCasellesBuides());
+        for (int i = 1; i <= nAjudants; i++) {
+            final int id = i;
+            final Cerca cerca = new Cerca(new TaulerBits(tauler), true);
+            final int[] ordre = new int[moviments.length];
+            for (int k = 0; k < ordre.length; k++) ordre[k] = moviments[(k + id) % ordre.length];
+            tasques.add(ajudants.submit(new Callable<Cerca>() {
+                @Override
+                public Cerca call() {
+                    for (int p = 1 + id % 2; p <= maxima && !cerca.aturada(); p++) {
+                        for (int col : ordre) {
+                            cerca.tauler.makeMove(col);
+                            cerca.valorFill(p - 1, color, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                            cerca.tauler.unmakeMove(col);
+                            if (cerca.aturada()) break;
+                        }
                     }
+                    return cerca;
                 }
-            }
+            }));
         }
-        return false;
+        return tasques;
     }
 
     /**
-     * Comprova si s'han connectat 4 peces en la direcció especificada
+     * Atura els ajudants de Lazy SMP, espera que acabin i suma els seus
+     * comptadors als del fil principal
      *
-     * @param tauler tauler on es busquen les 4 peces connectades
-     * @param fila indica la fila d'origen
-     * @param col indica la columna d'origen
-     * @param dirX indica si s'està mirant la direcció horitzontalment
-     * @param dirY indica si s'esta mirant la direcció verticalment (i en quin sentit)
-     * @param color color de les peces que es busquen si estan connectades
-     * @return true si hi han quatre peces connectades, false si no
+     * @param cerca cerca del fil principal
+     * @param tasques tasques retornades per llancaAjudants
      */
-    private boolean verificarDireccio(Tauler tauler, int fila, int col, int dirX, int dirY, int color) {
-        int comptador = 0;
-        for (int i = 0; i < 4; i++) {
-            int x = fila + i * dirX;
-            int y = col + i * dirY;
-            if (x >= 0 && x < tauler.getMida() && y >= 0 && y < tauler.getMida() && tauler.getColor(x, y) == color) {
-                comptador++;
-            } else {
-                break;
+    private void recullAjudants(Cerca cerca, List<Future<Cerca>> tasques) {
+        aturaAjudants = true;
+        nodesPerFil = new long[tasques.size() + 1];
+        nodesPerFil[0] = cerca.nodes;
+        for (int i = 0; i < tasques.size(); i++) {
+            try {
+                Cerca ajudant = tasques.get(i).get();
+                nodesPerFil[i + 1] = ajudant.nodes;
+                cerca.suma(ajudant);
+            } catch (InterruptedException | ExecutionException ex) {
+                throw new RuntimeException(ex);
             }
         }
-        return comptador == 4;
     }
 
     /**
-     * Comprova a quines columnes es pot posar una fitxa i retorna els seus
-     * indexs
+     * Activa la cerca Lazy SMP amb un cert nombre de fils ajudants, que
+     * comparteixen amb el fil principal la taula de transposició
      *
-     * @param tauler tauler des del que es vol fer el moviment
-     * @return una llista amb l'índex de cada columna on es pot llançar una fitxa
+     * @param n nombre de fils ajudants, 0 per no fer-ne servir
      */
-    private List<Integer> getMovimentsValids(Tauler tauler) {
-        List<Integer> moviments = new ArrayList<>();
-        //Per cada columna, si es pot fer un moviment, s'afegeix a la llista
-        for (int col = 0; col < tauler.getMida(); col++) {
-            if (tauler.movpossible(col)) {
-                moviments.add(col);
+    public void setAjudants(int n) {
+        if (ajudants != null) ajudants.shutdown();
+        this.nAjudants = n;
+        this.ajudants = n > 0 ? Executors.newFixedThreadPool(n, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread fil = new Thread(r, "MiniMassimo-ajudant");
+                fil.setDaemon(true); // No han d'impedir que acabi el programa
+                return fil;
             }
+        }) : null;
+    }
+
+    /**
+     * Oblida tot el que s'ha après de les cerques anteriors, com si el
+     * jugador fos nou, però sense tornar a reservar les taules
+     */
+    public void novaPartida() {
+        recullPonderacio(null);
+        if (taula != null) taula.buida();
+        taulaFinal.buida();
+        nodesTotalsExplorats = 0;
+    }
+
+    /**
+     * Getter de les mètriques de l'últim moviment
+     *
+     * @return estadístiques de l'últim moviment, null si encara no se n'ha fet cap
+     */
+    public EstadistiquesCerca getEstadistiques() {
+        return estadistiques;
+    }
+
+    /**
+     * Getter dels nodes explorats a l'últim moviment
+     *
+     * @return nodes de tots els fils, 0 si el moviment ha sortit del llibre o de la ponderació
+     */
+    public long getNodesMoviment() {
+        return estadistiques == null ? 0 : estadistiques.getNodes();
+    }
+
+    /**
+     * Getter dels nodes explorats des que es va crear el jugador o des de l'última novaPartida
+     *
+     * @return suma dels nodes de tots els moviments
+     */
+    public long getNodesTotals() {
+        return nodesTotalsExplorats;
+    }
+
+    /**
+     * Getter dels nodes explorats per cada fil a l'últim moviment
+     *
+     * @return nodes del fil principal a la posició 0 i de cada ajudant a les següents
+     */
+    public long[] getNodesPerFil() {
+        return nodesPerFil.clone();
+    }
+
+    /**
+     * Fa que la cerca reparteixi els moviments de l'arrel entre els fils d'un
+     * ForkJoinPool. El moviment triat és el mateix que amb la cerca d'un sol fil.
+     *
+     * @param pool pool on es cerquen els moviments de l'arrel, null per cercar amb un sol fil
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Tria l'algorisme de cerca: el minimax original o negamax amb cerca de
+     * variació principal (PVS) i, a l'aprofundiment iteratiu, finestres
+     * d'aspiració. La variant PVS sempre fa poda alfa-beta.
+     *
+     * Negamax guarda a les taules els valors per al jugador que mou i el
+     * minimax per al nostre color, de manera que en canviar d'algorisme les
+     * taules es buiden.
+     *
+     * @param pvs true per cercar amb negamax i PVS, false per fer servir el minimax
+     */
+    public void setPVS(boolean pvs) {
+        if (pvs != this.pvs) {
+            recullPonderacio(null);
+            if (taula != null) taula.buida();
+            taulaFinal.buida();
         }
-        return moviments;
+        this.pvs = pvs;
+    }
+
+    /**
+     * Activa o desactiva la presserca tàctica. Abans d'expandir un node es
+     * mira si el jugador que mou pot guanyar ara mateix, i llavors el node
+     * val la victòria sense expandir-lo; si no, es miren les amenaces
+     * immediates del rival: amb dues o més el node es perd, i amb una només
+     * es prova el moviment que la tapa. El valor de cada node és el mateix
+     * que sense presserca, només s'estalvien nodes.
+     *
+     * @param tactica true per fer la presserca tàctica (per defecte), false per expandir sempre tots els moviments
+     */
+    public void setTactica(boolean tactica) {
+        this.tactica = tactica;
     }
 
     /**
-     * Ordena una llista de index de columnes de forma decreixent segons la
-     * proximitat a la columna central del tauler
+     * Canvia les fitxes en línia que calen per guanyar quan el tauler arriba
+     * com a Tauler de la llibreria. Amb moviment(TaulerBits), les porta el
+     * mateix tauler.
      *
-     * @param moviments llista a ordenar amb els indexs de les columnes on es pot col·locar una fitxa
-     * @param tauler tauler actual
+     * @param k fitxes en línia per guanyar, 4 per defecte
      */
-    private void ordenarMoviments(List<Integer> moviments, Tauler tauler) {
-        int center = tauler.getMida() / 2;
-        Collections.sort(moviments, new Comparator<Integer>() {
+    public void setFitxesPerGuanyar(int k) {
+        this.k = k;
+    }
+
+    /**
+     * Activa o desactiva les claus simètriques a les taules de transposició.
+     * Amb simetria, una posició i la seva reflexió horitzontal tenen la
+     * mateixa clau i el millor moviment es guarda en l'orientació canònica,
+     * de manera que el que s'ha cercat per a una serveix per a l'altra i la
+     * taula hi cap el doble de posicions diferents.
+     *
+     * @param simetria true per compartir les entrades entre posicions simètriques (per defecte), false per no fer-ho
+     */
+    public void setSimetria(boolean simetria) {
+        this.simetria = simetria;
+    }
+
+    /**
+     * Fa que el jugador consulti un llibre d'obertures abans de cercar
+     *
+     * @param llibre llibre d'obertures, null per cercar sempre
+     */
+    public void setLlibre(LlibreObertures llibre) {
+        this.llibre = llibre;
+    }
+
+    /**
+     * Activa o desactiva la ponderació: cercar durant el torn del rival,
+     * suposant que farà el moviment que la nostra cerca ha previst. Cal
+     * cridar ponderaRival després de cada moviment propi.
+     *
+     * @param activa true per ponderar, false per no fer-ho
+     */
+    public void setPonderacio(boolean activa) {
+        if (ponderador != null) {
+            aturaPonderacio = true;
+            ponderador.shutdown();
+        }
+        tascaPonderacio = null;
+        this.ponderador = activa ? Executors.newSingleThreadExecutor(new ThreadFactory() {
             @Override
-            public int compare(Integer a, Integer b) {
-                return Integer.compare(Math.abs(center - a), Math.abs(center - b));
+            public Thread newThread(Runnable r) {
+                Thread fil = new Thread(r, "MiniMassimo-ponderacio");
+                fil.setDaemon(true); // No ha d'impedir que acabi el programa
+                return fil;
+            }
+        }) : null;
+    }
+
+    /**
+     * Comença a cercar, en segon pla, la resposta al moviment que es preveu
+     * que farà el rival: el millor moviment seu que ha trobat la nostra
+     * cerca, guardat a la taula de transposició. La cerca comparteix la
+     * taula amb la del moviment següent, de manera que encara que el rival
+     * jugui una altra cosa la feina no es perd del tot.
+     *
+     * Amb profunditat fixa, si el rival fa el moviment previst i la
+     * ponderació ha tingut temps d'acabar, moviment retorna el resultat
+     * directament. Amb temps per moviment, l'aprofundiment iteratiu troba les
+     * primeres iteracions ja fetes a la taula.
+     *
+     * @param t tauler després del nostre moviment; se'n fa una còpia abans de retornar
+     * @param color el color del nostre jugador
+     */
+    public void ponderaRival(Tauler t, final int color) {
+        if (ponderador == null) return;
+        recullPonderacio(null);
+        final TaulerBits tauler = new TaulerBits(t, -color, k);
+        if (tauler.haGuanyat(color) || !tauler.espotmoure()) return; // La partida s'ha acabat
+
+        // Moviment previst del rival: el millor que ha trobat la nostra cerca, o el més central
+        clauColor = color == 1 ? 0 : CLAU_COLOR_NEGATIU;
+        int[] buffer = new int[tauler.getAmplada()];
+        int n = getMovimentsValids(tauler, buffer);
+        int previst = buffer[0];
+        if (taula != null) {
+            long entrada = taula.cerca(clauTaula(tauler) ^ clauColor);
+            int col = orienta(tauler, TaulaTransposicio.moviment(entrada));
+            if (entrada != 0 && col >= 0 && tauler.movpossible(col)) previst = col;
+        }
+        tauler.makeMove(previst);
+        if (tauler.haGuanyat(-color) || !tauler.espotmoure()) return; // Després no ens tocaria moure
+        hashPonderat = tauler.getHash();
+        if (taula != null) taula.novaCerca();
+
+        final Cerca cerca = new Cerca(tauler, false);
+        cerca.ponderant = true;
+        aturaPonderacio = false;
+        tascaPonderacio = ponderador.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                int[] buffer = new int[tauler.getAmplada()];
+                int[] moviments = Arrays.copyOf(buffer, getMovimentsValids(tauler, buffer));
+                if (tauler.getCasellesBuides() <= llindarFinal) {
+                    return cerca.resolArrel(moviments);
+                }
+                // Les iteracions menys profundes omplen la taula; només la de
+                // profunditat màxima és la mateixa cerca que faria moviment. Amb
+                // menys caselles buides que profunditatMaxima, cercar fins a
+                // omplir el tauler ja arriba a les mateixes fulles.
+                int maxima = Math.min(profunditatMaxima, tauler.getCasellesBuides());
+                int moviment = -1;
+                for (int p = 1; p <= maxima && !cerca.aturada(); p++) {
+                    int col = cercaArrel(cerca, p, color, moviments, -INFINIT, INFINIT);
+                    if (!cerca.aturada() && p == maxima) moviment = col;
+                }
+                return tempsPerMoviment > 0 ? -1 : moviment;
             }
         });
     }
 
+    /**
+     * Atura la ponderació en marxa, si n'hi ha, i en recull el resultat
+     *
+     * @param tauler posició on ens toca moure, null si només es vol aturar
+     * @return moviment per a la posició si és la prevista i la ponderació l'ha acabat de cercar, -1 si no
+     */
+    private int recullPonderacio(TaulerBits tauler) {
+        if (tascaPonderacio == null) return -1;
+        aturaPonderacio = true;
+        int moviment;
+        try {
+            moviment = tascaPonderacio.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        }
+        tascaPonderacio = null;
+        if (tauler == null || tauler.getHash() != hashPonderat || moviment < 0 || !tauler.movpossible(moviment)) {
+            return -1;
+        }
+        return moviment;
+    }
+
+    /**
+     * Canvia el nombre de caselles buides per sota del qual el jugador deixa
+     * de cercar a profunditat limitada i resol la posició exactament
+     *
+     * @param caselles caselles buides (incloses) a partir de les quals es resol, 0 per no resoldre mai
+     */
+    public void setLlindarFinal(int caselles) {
+        this.llindarFinal = caselles;
+    }
+
+    /**
+     * Canvia la profunditat màxima de la cerca
+     *
+     * @param d profunditat màxima dels moviments següents
+     */
+    public void setProfunditat(int d) {
+        this.profunditatMaxima = d;
+    }
+
+    /**
+     * Canvia el temps per moviment
+     *
+     * @param tempsMs mil·lisegons que pot pensar cada moviment, 0 per cercar sempre a la profunditat màxima
+     */
+    public void setTempsPerMoviment(long tempsMs) {
+        this.tempsPerMoviment = tempsMs;
+    }
+
+    /**
+     * Demana, des d'un altre fil, que la cerca en curs acabi com si s'hagués
+     * esgotat el temps: es queda el moviment de l'última iteració acabada.
+     * Només té efecte amb temps per moviment, i la primera iteració s'acaba
+     * sempre. La cerca no es torna a permetre fins que es crida amb false.
+     *
+     * @param aturada true per aturar la cerca, false per deixar cercar els moviments següents
+     */
+    public void setAturada(boolean aturada) {
+        this.aturadaExterna = aturada;
+    }
+
+    /**
+     * Indica qui ha de rebre el resultat de cada iteració de l'aprofundiment
+     * iteratiu. Es crida des del fil de la cerca.
+     *
+     * @param observador qui el rep, null per no avisar ningú
+     */
+    public void setObservador(ObservadorCerca observador) {
+        this.observador = observador;
+    }
+
     /**
      * Getter del nom del jugador
      *
@@ -339,4 +884,565 @@ public class MiniMassimo implements Jugador, IAuto {
     public String nom() {
         return this.nom;
     }
+
+    /**
+     * Descripció de tota la configuració del jugador, per poder-lo tornar a
+     * crear igual (vegeu RegistrePartida)
+     *
+     * @return text amb una opció clau=valor per cada paràmetre
+     */
+    public String getConfiguracio() {
+        return "profunditat=" + profunditatMaxima + " poda=" + poda + " ordenacio=" + ordenacio
+                + " taula=" + (taula != null) + " tempsMs=" + tempsPerMoviment + " pvs=" + pvs + " tactica=" + tactica
+                + " simetria=" + simetria + " k=" + k + " llibre=" + (llibre != null) + " llindarFinal=" + llindarFinal
+                + " paral·lel=" + (pool != null) + " ajudants=" + nAjudants + " ponderacio=" + (ponderador != null);
+    }
+
+    /**
+     * Estat d'una cerca que és propi de cada fil: el tauler sobre el que es
+     * mou i desfà i els comptadors de les mètriques. La configuració, la
+     * taula de transposició i el control del temps són del jugador i es
+     * comparteixen.
+     */
+    private class Cerca {
+
+        final TaulerBits tauler;
+        final boolean ajudant; // Els ajudants de Lazy SMP s'aturen quan acaba el fil principal
+        boolean ponderant; // La ponderació només s'atura quan ens torna a tocar moure
+        long nodes; // Amb els ajudants sumats i cerques sense límit, un int es desbordaria
+        // Comptadors per a EstadistiquesCerca: nodes on s'han generat moviments, podes, podes
+        // del primer moviment, consultes i encerts a la taula de transposició
+        long nodesInteriors, talls, tallsPrimerMoviment, consultesTaula, encertsTaula;
+        int alphaFill, valorFill; // Alfa amb què s'ha cercat un fill de l'arrel a la cerca paral·lela i el seu valor
+
+        // Ordenació dinàmica: dos moviments assassins per nivell (els últims que
+        // han provocat una poda) i l'historial de podes de cada columna per color
+        final int[][] assassins;
+        final int[][] historial;
+        final int[] puntuacions; // Puntuació de cada columna al node que s'està ordenant
+        final int[][] movimentsPly; // Buffer de moviments de cada nivell, perquè la cerca no creï cap objecte per node
+
+        /**
+         * Constructora
+         *
+         * @param tauler tauler propi d'aquesta cerca
+         * @param ajudant true si és la cerca d'un fil ajudant de Lazy SMP
+         */
+        Cerca(TaulerBits tauler, boolean ajudant) {
+            this.tauler = tauler;
+            this.ajudant = ajudant;
+            int amplada = tauler.getAmplada(), celles = amplada * tauler.getAlcada();
+            this.assassins = new int[celles + 1][2];
+            for (int[] a : assassins) Arrays.fill(a, -1);
+            this.historial = new int[2][amplada];
+            this.puntuacions = new int[amplada];
+            this.movimentsPly = new int[celles + 1][amplada];
+        }
+
+        /**
+         * Ordena els moviments d'un node: primer el de la taula de
+         * transposició, després els assassins del nivell i la resta segons
+         * l'historial de podes, desempatant per proximitat al centre. Com que
+         * com a molt hi ha una columna per fila del tauler, n'hi ha prou amb
+         * una ordenació per inserció, que és estable.
+         *
+         * @param moviments columnes on es pot tirar
+         * @param n nombre de columnes vàlides del buffer
+         * @param ply nombre de moviments des de l'arrel
+         * @param movimentTaula millor moviment guardat a la taula, -1 si no n'hi ha
+         */
+        void ordenaMoviments(int[] moviments, int n, int ply, int movimentTaula) {
+            int[] historia = historial[tauler.getTorn() == 1 ? 0 : 1];
+            int centre = tauler.getAmplada() / 2;
+            for (int i = 0; i < n; i++) {
+                int col = moviments[i];
+                if (col == movimentTaula) puntuacions[col] = Integer.MAX_VALUE;
+                else if (col == assassins[ply][0]) puntuacions[col] = Integer.MAX_VALUE - 1;
+                else if (col == assassins[ply][1]) puntuacions[col] = Integer.MAX_VALUE - 2;
+                else puntuacions[col] = historia[col] * 16 - Math.abs(centre - col);
+            }
+            for (int i = 1; i < n; i++) {
+                int col = moviments[i];
+                int puntuacio = puntuacions[col];
+                int j = i - 1;
+                while (j >= 0 && puntuacions[moviments[j]] < puntuacio) {
+                    moviments[j + 1] = moviments[j];
+                    j--;
+                }
+                moviments[j + 1] = col;
+            }
+        }
+
+        /**
+         * Presserca tàctica d'un node que s'ha d'expandir. Si el jugador que
+         * mou pot fer quatre en línia, el node val la victòria. Si no, i el
+         * rival té alguna columna on guanyaria, qualsevol altre moviment perd
+         * al ply següent: amb dues o més columnes el node es perd, i amb una
+         * només cal provar la que la tapa. Les amenaces només es fan servir
+         * amb profunditat 2 o més, que és quan la cerca completa també veuria
+         * la derrota; així el valor del node no canvia.
+         *
+         * @param profunditat profunditat restant, com a mínim 1
+         * @return GUANYA, PERD, la columna on s'ha de tirar, o -1 si cal expandir tots els moviments
+         */
+        int presserca(int profunditat) {
+            int torn = tauler.getTorn();
+            if (tauler.columnesGuanyadores(torn) != 0) return GUANYA;
+            if (profunditat < 2) return -1;
+            int amenaces = tauler.columnesGuanyadores(-torn);
+            if (amenaces == 0) return -1;
+            if ((amenaces & (amenaces - 1)) != 0) return PERD;
+            return Integer.numberOfTrailingZeros(amenaces);
+        }
+
+        /**
+         * Suma els comptadors d'una altra cerca (d'un altre fil) als d'aquesta
+         *
+         * @param altra cerca ja acabada
+         */
+        void suma(Cerca altra) {
+            nodes += altra.nodes;
+            nodesInteriors += altra.nodesInteriors;
+            talls += altra.talls;
+            tallsPrimerMoviment += altra.tallsPrimerMoviment;
+            consultesTaula += altra.consultesTaula;
+            encertsTaula += altra.encertsTaula;
+        }
+
+        /**
+         * Compta una poda al node on s'està mirant el moviment i-èssim
+         *
+         * @param i posició del moviment que ha podat dins l'ordre del node
+         */
+        void comptaTall(int i) {
+            talls++;
+            if (i == 0) tallsPrimerMoviment++;
+        }
+
+        /**
+         * Registra el moviment que ha provocat una poda com a assassí del
+         * nivell i li suma punts a l'historial, més com més profunda la poda
+         *
+         * @param ply nombre de moviments des de l'arrel
+         * @param col columna que ha provocat la poda
+         * @param profunditat profunditat restant del node on s'ha podat
+         */
+        void registraTall(int ply, int col, int profunditat) {
+            if (assassins[ply][0] != col) {
+                assassins[ply][1] = assassins[ply][0];
+                assassins[ply][0] = col;
+            }
+            int[] historia = historial[tauler.getTorn() == 1 ? 0 : 1];
+            historia[col] += profunditat * profunditat;
+            if (historia[col] > (1 << 24)) { // Evitar desbordaments: es redueix tot l'historial a la meitat
+                for (int i = 0; i < historia.length; i++) historia[i] >>= 1;
+            }
+        }
+
+        /**
+         * Comprova si s'ha passat el temps per moviment. Només es mira el
+         * rellotge cada cert nombre de nodes perquè no surti car.
+         *
+         * @return true si s'ha d'aturar la cerca
+         */
+        boolean tempsExhaurit() {
+            if (controlTemps && (nodes & 1023) == 0 && (aturadaExterna || System.nanoTime() >= instantLimit)) {
+                tempsEsgotat = true;
+            }
+            return aturada();
+        }
+
+        /**
+         * Indica si s'ha d'abandonar la cerca, perquè s'ha acabat el temps o
+         * perquè és un ajudant i el fil principal ja té el moviment, o
+         * perquè és la ponderació i ja ens toca moure
+         *
+         * @return true si el valor que s'està calculant ja no es farà servir
+         */
+        boolean aturada() {
+            if (ponderant) return aturaPonderacio;
+            return tempsEsgotat || (ajudant && aturaAjudants);
+        }
+
+        /**
+         * Valor d'una posició de després d'un moviment de l'arrel, des del
+         * punt de vista del nostre jugador, amb l'algorisme que toqui
+         *
+         * @param profunditat profunditat restant
+         * @param color el color del nostre jugador
+         * @param alpha límit inferior de la finestra
+         * @param beta límit superior de la finestra
+         * @return valor de la posició per al nostre jugador
+         */
+        int valorFill(int profunditat, int color, int alpha, int beta) {
+            if (!pvs) return minimax(profunditat, false, color, alpha, beta);
+            // Després del moviment de l'arrel mou l'oponent: el seu valor canviat de signe és el nostre
+            return -negamax(profunditat, color, -beta, -Math.max(alpha, -INFINIT));
+        }
+
+        /**
+         * Negamax amb cerca de variació principal: el primer moviment de cada
+         * node es cerca amb la finestra sencera i la resta amb una finestra
+         * nul·la, que només demostra que no el millora. Si un moviment la
+         * supera, es torna a cercar amb la finestra sencera.
+         *
+         * Els valors són sempre per al jugador a qui toca tirar. Com que
+         * l'heurística no és simètrica, es calcula per al nostre color i es
+         * canvia de signe quan mou l'oponent, de manera que el resultat és el
+         * mateix que el del minimax.
+         *
+         * @param profunditat profunditat restant
+         * @param color el color del nostre jugador
+         * @param alpha límit inferior de la finestra, per al jugador que mou
+         * @param beta límit superior de la finestra, per al jugador que mou
+         * @return el millor valor per al jugador que mou
+         */
+        int negamax(int profunditat, int color, int alpha, int beta) {
+            nodes++;
+            if (tempsExhaurit()) return 0; // S'ha acabat el temps: el valor no es farà servir
+
+            long clau = clauTaula(tauler) ^ clauColor;
+            int alphaOriginal = alpha, betaOriginal = beta;
+            int movimentTaula = -1;
+            if (taula != null && profunditat > 0) {
+                long entrada = taula.cerca(clau);
+                consultesTaula++;
+                if (entrada != 0) {
+                    encertsTaula++;
+                    movimentTaula = orienta(tauler, TaulaTransposicio.moviment(entrada));
+                    if (TaulaTransposicio.profunditat(entrada) >= profunditat) {
+                        int valorTaula = TaulaTransposicio.valor(entrada);
+                        int tipus = TaulaTransposicio.tipus(entrada);
+                        if (tipus == TaulaTransposicio.EXACTA) return valorTaula;
+                        if (tipus == TaulaTransposicio.COTA_INFERIOR) alpha = Math.max(alpha, valorTaula);
+                        else beta = Math.min(beta, valorTaula);
+                        if (beta <= alpha) return valorTaula;
+                    }
+                }
+            }
+
+            int signe = tauler.getTorn() == color ? 1 : -1;
+            int resultat = signe * avaluarTauler(tauler, color);
+            if (profunditat == 0 || Math.abs(resultat) >= 1000000 || !tauler.espotmoure()) {
+                return resultat;
+            }
+
+            int forcat = -1;
+            if (tactica) {
+                int tactic = presserca(profunditat);
+                if (tactic == GUANYA) return 1000000;
+                if (tactic == PERD) return -1000000;
+                forcat = tactic;
+            }
+
+            int ply = tauler.getNombreJugades();
+            int[] moviments = movimentsPly[ply];
+            int n;
+            if (forcat >= 0) {
+                moviments[0] = forcat;
+                n = 1;
+            } else {
+                n = getMovimentsValids(tauler, moviments);
+                if(ordenacio) ordenaMoviments(moviments, n, ply, movimentTaula);
+                else if(movimentTaula >= 0) posarPrimer(moviments, n, movimentTaula);
+            }
+            nodesInteriors++;
+
+            int millorValor = -INFINIT, millorColumna = -1;
+            for (int i = 0; i < n; i++) {
+                int col = moviments[i];
+                tauler.makeMove(col);
+                int valor;
+                if (i == 0) {
+                    valor = -negamax(profunditat - 1, color, -beta, -alpha);
+                } else {
+                    valor = -negamax(profunditat - 1, color, -alpha - 1, -alpha); // Finestra nul·la
+                    if (valor > alpha && valor < beta) {
+                        valor = -negamax(profunditat - 1, color, -beta, -alpha); // L'ha millorat: cal el valor exacte
+                    }
+                }
+                tauler.unmakeMove(col);
+                if (aturada()) return 0;
+                if (valor > millorValor) {
+                    millorValor = valor;
+                    millorColumna = col;
+                }
+                alpha = Math.max(alpha, valor);
+                if (alpha >= beta) {
+                    comptaTall(i);
+                    if (ordenacio) registraTall(ply, col, profunditat);
+                    break;
+                }
+            }
+
+            if (taula != null && !aturada()) {
+                int tipus = TaulaTransposicio.EXACTA;
+                if (millorValor <= alphaOriginal) tipus = TaulaTransposicio.COTA_SUPERIOR;
+                else if (millorValor >= betaOriginal) tipus = TaulaTransposicio.COTA_INFERIOR;
+                taula.guarda(clau, profunditat, tipus, millorValor, orienta(tauler, millorColumna));
+            }
+            return millorValor;
+        }
+
+        /**
+         * Resol exactament la posició de l'arrel i tria el moviment que guanya
+         * més ràpid o, si no se'n pot guanyar cap, el que perd més tard. El
+         * primer moviment es resol sencer i la resta només es resolen si una
+         * cerca amb finestra nul·la demostra que el milloren.
+         *
+         * @param moviments columnes on es pot tirar, en ordre
+         * @return la columna del millor moviment, -1 si s'ha aturat abans d'acabar; el valor es deixa a valorArrel
+         */
+        int resolArrel(int[] moviments) {
+            int millorMoviment = -1, millorValor = -INFINIT;
+            for (int i = 0; i < moviments.length; i++) {
+                int col = moviments[i];
+                tauler.makeMove(col);
+                int valor;
+                if (i == 0) {
+                    valor = -resol();
+                } else {
+                    valor = -negamaxFinal(-millorValor - 1, -millorValor);
+                    if (valor > millorValor) valor = -resol();
+                }
+                tauler.unmakeMove(col);
+                if (aturada()) return -1;
+                if (valor > millorValor) {
+                    millorValor = valor;
+                    millorMoviment = col;
+                }
+            }
+            valorArrel = millorValor;
+            return millorMoviment;
+        }
+
+        /**
+         * Valor exacte de la posició per al jugador a qui toca tirar. Es
+         * troba acotant-lo amb cerques de finestra nul·la, que són molt més
+         * barates que una sola cerca amb la finestra sencera.
+         *
+         * Si el jugador que mou guanya, el valor és el nombre de caselles que
+         * quedaran buides després de la fitxa guanyadora més 1; si perd, el
+         * mateix canviat de signe; si fan taules, 0. Així guanyar abans val
+         * més i perdre més tard val menys malament.
+         *
+         * @return valor exacte, o no vàlid si la cerca s'ha aturat
+         */
+        int resol() {
+            int buides = tauler.getCasellesBuides();
+            int min = -(buides + 1), max = buides + 1;
+            while (min < max && !aturada()) {
+                int mig = min + (max - min) / 2;
+                // Provar primer prop de 0 (taules), que és on sol ser el valor
+                if (mig <= 0 && min / 2 < mig) mig = min / 2;
+                else if (mig >= 0 && max / 2 > mig) mig = max / 2;
+                int valor = negamaxFinal(mig, mig + 1);
+                if (valor <= mig) max = valor;
+                else min = valor;
+            }
+            return min;
+        }
+
+        /**
+         * Negamax exacte fins al final de la partida, amb poda alfa-beta i la
+         * taula de transposició pròpia del solucionador
+         *
+         * @param alpha límit inferior de la finestra
+         * @param beta límit superior de la finestra
+         * @return valor de la posició per al jugador que mou; fora de la finestra és només una cota
+         */
+        int negamaxFinal(int alpha, int beta) {
+            nodes++;
+            if (tempsExhaurit()) return 0;
+
+            int buides = tauler.getCasellesBuides();
+            int torn = tauler.getTorn();
+            if (haGuanyat(tauler, -torn)) return -(buides + 1); // L'últim moviment ha guanyat
+            if (buides == 0) return 0; // Taules
+
+            int ply = tauler.getNombreJugades();
+            int[] moviments = movimentsPly[ply];
+            int n = getMovimentsValids(tauler, moviments);
+            for (int i = 0; i < n; i++) { // Guanyar ara és sempre el millor
+                tauler.makeMove(moviments[i]);
+                boolean guanya = tauler.guanyaPer(tauler.getUltimaCella(), torn);
+                tauler.unmakeMove(moviments[i]);
+                if (guanya) return buides;
+            }
+
+            // Si no es guanya ara, com a molt es guanya amb el següent moviment propi
+            int maxim = buides - 2;
+            if (beta > maxim) {
+                beta = maxim;
+                if (alpha >= beta) return maxim;
+            }
+            int alphaOriginal = alpha, betaOriginal = beta;
+
+            long clau = clauTaula(tauler) ^ (torn == 1 ? 0 : CLAU_COLOR_NEGATIU);
+            long entrada = taulaFinal.cerca(clau);
+            consultesTaula++;
+            if (entrada != 0) {
+                encertsTaula++;
+                int valorTaula = TaulaTransposicio.valor(entrada);
+                int tipus = TaulaTransposicio.tipus(entrada);
+                if (tipus == TaulaTransposicio.EXACTA) return valorTaula;
+                if (tipus == TaulaTransposicio.COTA_INFERIOR) alpha = Math.max(alpha, valorTaula);
+                else beta = Math.min(beta, valorTaula);
+                if (alpha >= beta) return valorTaula;
+                int movimentTaula = orienta(tauler, TaulaTransposicio.moviment(entrada));
+                if (movimentTaula >= 0) posarPrimer(moviments, n, movimentTaula);
+            }
+            nodesInteriors++;
+
+            int millorValor = -INFINIT, millorColumna = -1;
+            for (int i = 0; i < n; i++) {
+                int col = moviments[i];
+                tauler.makeMove(col);
+                int valor = -negamaxFinal(-beta, -alpha);
+                tauler.unmakeMove(col);
+                if (aturada()) return 0;
+                if (valor > millorValor) {
+                    millorValor = valor;
+                    millorColumna = col;
+                }
+                alpha = Math.max(alpha, valor);
+                if (alpha >= beta) {
+                    comptaTall(i);
+                    break;
+                }
+            }
+
+            int tipus = TaulaTransposicio.EXACTA;
+            if (millorValor <= alphaOriginal) tipus = TaulaTransposicio.COTA_SUPERIOR;
+            else if (millorValor >= betaOriginal) tipus = TaulaTransposicio.COTA_INFERIOR;
+            taulaFinal.guarda(clau, buides, tipus, millorValor, orienta(tauler, millorColumna));
+            return millorValor;
+        }
+
+        /**
+         * Implementa l'algoritme Minimax amb poda alfa-beta.
+         *
+         * @param profunditat El nivell del moviment.
+         * @param maximitzant True si estem maximitzant (serà un torn del nostre jugador), false si estem minimitzant
+         * @param color El color del nostre jugador
+         * @param alpha El valor alfa per a la poda (millor opció del maximitzador).
+         * @param beta El valor beta per a la poda (millor opció del minimitzador).
+         * @return el millor valor heurístic trobat per al moviment actual.
+         */
+        int minimax(int profunditat, boolean maximitzant, int color, int alpha, int beta) {
+            nodes++; // Incrementa el comptador de nodes explorats
+            if (tempsExhaurit()) return 0; // S'ha acabat el temps: el valor no es farà servir
+
+            // Consultar la taula de transposició abans d'avaluar el tauler i de generar moviments
+            long clau = clauTaula(tauler) ^ clauColor;
+            int alphaOriginal = alpha, betaOriginal = beta;
+            int movimentTaula = -1;
+            if (taula != null && profunditat > 0) {
+                long entrada = taula.cerca(clau);
+                consultesTaula++;
+                if (entrada != 0) {
+                    encertsTaula++;
+                    movimentTaula = orienta(tauler, TaulaTransposicio.moviment(entrada));
+                    if (TaulaTransposicio.profunditat(entrada) >= profunditat) {
+                        int valorTaula = TaulaTransposicio.valor(entrada);
+                        int tipus = TaulaTransposicio.tipus(entrada);
+                        if (tipus == TaulaTransposicio.EXACTA) return valorTaula;
+                        if (poda) { // Les cotes només serveixen per estrènyer la finestra alfa-beta
+                            if (tipus == TaulaTransposicio.COTA_INFERIOR) alpha = Math.max(alpha, valorTaula);
+                            else beta = Math.min(beta, valorTaula);
+                            if (beta <= alpha) return valorTaula;
+                        }
+                    }
+                }
+            }
+
+            int resultat = avaluarTauler(tauler, color); //Obtenir valor heurístic pel tauler
+
+            //Si s'ha arribat a la profunditat màxima, s'ha guanyat o estan totes les columnes plenes retorna el resultat
+            if (profunditat == 0 || Math.abs(resultat) >= 1000000 || !tauler.espotmoure()) {
+                return resultat;
+            }
+
+            // Presserca tàctica: victòria immediata, dues amenaces del rival o un sol moviment per tapar-ne una
+            int forcat = -1;
+            if (tactica) {
+                int tactic = presserca(profunditat);
+                if (tactic == GUANYA) return maximitzant ? 1000000 : -1000000;
+                if (tactic == PERD) return maximitzant ? -1000000 : 1000000;
+                forcat = tactic;
+            }
+
+            int ply = tauler.getNombreJugades();
+            int[] moviments = movimentsPly[ply];
+            int n;
+            if (forcat >= 0) {
+                moviments[0] = forcat;
+                n = 1;
+            } else {
+                n = getMovimentsValids(tauler, moviments); // Obté les columnes disponibles per moure.
+                if(ordenacio) ordenaMoviments(moviments, n, ply, movimentTaula);
+                else if(movimentTaula >= 0) posarPrimer(moviments, n, movimentTaula); // El millor moviment guardat a la taula es prova primer
+            }
+            nodesInteriors++;
+            int millorValor, millorColumna = -1;
+
+            // Si és el torn del maximitzador (el nostre jugador):
+            if (maximitzant) {
+                millorValor = Integer.MIN_VALUE; // Inicialitza el valor màxim a un valor molt baix.
+                // Prova cada moviment disponible.
+                for (int i = 0; i < n; i++) {
+                    int col = moviments[i];
+                    tauler.makeMove(col); // Afegeix una peça del jugador actual en la columna seleccionada.
+                    // Avalua el moviment recursivament, passant al torn del minimitzador.
+                    int valor = minimax(profunditat - 1, false, color, alpha, beta);
+                    tauler.unmakeMove(col); // Treu la peça per deixar el tauler com estava.
+                    if (aturada()) return 0;
+                    if (valor > millorValor) { // Actualitza el valor màxim trobat fins ara.
+                        millorValor = valor;
+                        millorColumna = col;
+                    }
+                    // Actualitza el límit alfa (millor opció coneguda per al maximitzador).
+                    alpha = Math.max(alpha, valor);
+                    // Poda beta: si el valor actual és millor que el límit beta, s'atura l'exploració.
+                    if (poda && beta <= alpha) {
+                        comptaTall(i);
+                        if (ordenacio) registraTall(ply, col, profunditat);
+                        break; // Poda beta
+                    }
+                }
+            } else { // Si és el torn de l'oponent:
+                millorValor = Integer.MAX_VALUE; // Inicialitza el valor mínim a un valor molt alt.
+                // Prova cada moviment disponible.
+                for (int i = 0; i < n; i++) {
+                    int col = moviments[i];
+                    tauler.makeMove(col); // Afegeix una peça de l'oponent.
+                    // Avalua el moviment recursivament, passant al torn del maximitzador.
+                    int valor = minimax(profunditat - 1, true, color, alpha, beta);
+                    tauler.unmakeMove(col); // Treu la peça de l'oponent.
+                    if (aturada()) return 0;
+                    if (valor < millorValor) { // Actualitza el valor mínim trobat fins ara.
+                        millorValor = valor;
+                        millorColumna = col;
+                    }
+                    // Actualitza el límit beta (millor opció coneguda per al minimitzador).
+                    beta = Math.min(beta, valor);
+                    // Poda alfa: si el valor actual és pitjor que el límit alfa, s'atura l'exploració.
+                    if (poda && beta <= alpha) {
+                        comptaTall(i);
+                        if (ordenacio) registraTall(ply, col, profunditat);
+                        break; // Poda alfa
+                    }
+                }
+            }
+
+            // Guardar el resultat a la taula. Amb poda, un valor fora de la finestra original només és una cota.
+            if (taula != null && !aturada()) {
+                int tipus = TaulaTransposicio.EXACTA;
+                if (poda && millorValor <= alphaOriginal) tipus = TaulaTransposicio.COTA_SUPERIOR;
+                else if (poda && millorValor >= betaOriginal) tipus = TaulaTransposicio.COTA_INFERIOR;
+                taula.guarda(clau, profunditat, tipus, millorValor, orienta(tauler, millorColumna));
+            }
+            return millorValor; // Retorna el millor valor trobat per al jugador que mou.
+        }
+    }
 }
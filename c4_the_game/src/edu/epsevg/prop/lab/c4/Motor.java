@@ -0,0 +1,342 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Motor: MiniMassimo com a procés que dura, controlat per l'entrada i la
+ * sortida estàndard amb un protocol de línies a l'estil de l'UCI dels
+ * escacs. Un mateix procés juga totes les partides que se li demanin, de
+ * manera que el JIT ja està escalfat i les taules de transposició es
+ * conserven d'una partida a l'altra.
+ *
+ * Ordres:
+ * <ul>
+ * <li>uci: respon id, les opcions i uciok</li>
+ * <li>isready: respon readyok, també mentre cerca</li>
+ * <li>setoption name NOM [value VALOR]: canvia una opció (vegeu uci)</li>
+ * <li>ucinewgame: torna a la posició inicial; les taules es conserven,
+ * i només es buiden amb Clear Hash o quan canvien les regles (Amplada,
+ * Alcada, K) o l'algorisme (PVS)</li>
+ * <li>position startpos [moves C1 C2 ...]: la posició després de tirar a
+ * les columnes C1, C2... des del tauler buit; comença el color 1</li>
+ * <li>go [depth N] [movetime MS] [infinite]: cerca amb aprofundiment
+ * iteratiu fins a la profunditat, el temps o stop; sense depth, fins a la
+ * profunditat de l'opció Profunditat. Escriu una línia info per iteració i acaba amb bestmove
+ * COLUMNA, o bestmove (none) si la partida ja s'ha acabat</li>
+ * <li>stop: acaba la cerca en curs amb el millor moviment que tingui</li>
+ * <li>quit: acaba el procés</li>
+ * </ul>
+ *
+ * Les línies info porten depth, score (cp VALOR, o win i loss quan la
+ * victòria o la derrota és segura), nodes, nps, time en mil·lisegons i pv
+ * amb la columna. Les ordres desconegudes es descarten.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class Motor {
+
+    private static final long SENSE_LIMIT_MS = 24L * 3600 * 1000; // Temps d'una cerca que només acaba amb la profunditat o stop
+    private static final int PROFUNDITAT_MAXIMA = 256;
+
+    // Opcions
+    private int amplada = 8, alcada = 8, k = TaulerBits.K_PER_DEFECTE;
+    private int profunditat = PROFUNDITAT_MAXIMA;
+    private int midaTaula = MiniMassimo.MIDA_TAULA_PER_DEFECTE;
+    private boolean pvs = true, tactica = true, simetria = true;
+    private int llindarFinal = MiniMassimo.LLINDAR_FINAL_PER_DEFECTE;
+    private int ajudants = 0;
+
+    private MiniMassimo jugador;
+    private TaulerBits tauler;
+    private final ExecutorService fil = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Motor-cerca");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> cerca; // Cerca en curs o l'última, null si encara no n'hi ha hagut cap
+
+    public static void main(String[] args) throws IOException {
+        new Motor().executa(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Constructora: crea el jugador amb les opcions per defecte
+     */
+    public Motor() {
+        creaJugador();
+        tauler = new TaulerBits(amplada, alcada, k);
+    }
+
+    /**
+     * Llegeix i executa ordres fins a quit o el final de l'entrada
+     *
+     * @param entrada d'on es llegeixen les ordres, una per línia
+     * @throws IOException si no es pot llegir l'entrada
+     */
+    public void executa(BufferedReader entrada) throws IOException {
+        String linia;
+        while ((linia = entrada.readLine()) != null) {
+            String[] paraules = linia.trim().split("\\s+");
+            switch (paraules[0]) {
+                case "uci":
+                    envia("id name MiniMassimo");
+                    envia("id author Pau Ramos, Ilarion Tsekot");
+                    envia("option name Amplada type spin default 8 min 1 max " + Finestres.MIDA_MAXIMA);
+                    envia("option name Alcada type spin default 8 min 1 max " + Finestres.MIDA_MAXIMA);
+                    envia("option name K type spin default " + TaulerBits.K_PER_DEFECTE + " min 2 max " + Finestres.MIDA_MAXIMA);
+                    envia("option name Profunditat type spin default " + PROFUNDITAT_MAXIMA + " min 1 max " + PROFUNDITAT_MAXIMA);
+                    envia("option name Taula type spin default " + MiniMassimo.MIDA_TAULA_PER_DEFECTE + " min 0 max " + (1 << 28));
+                    envia("option name PVS type check default true");
+                    envia("option name Tactica type check default true");
+                    envia("option name Simetria type check default true");
+                    envia("option name LlindarFinal type spin default " + MiniMassimo.LLINDAR_FINAL_PER_DEFECTE + " min 0 max 256");
+                    envia("option name Ajudants type spin default 0 min 0 max 64");
+                    envia("option name Clear Hash type button");
+                    envia("uciok");
+                    break;
+                case "isready":
+                    envia("readyok");
+                    break;
+                case "setoption":
+                    esperaCerca();
+                    opcio(linia);
+                    break;
+                case "ucinewgame":
+                    esperaCerca();
+                    tauler = new TaulerBits(amplada, alcada, k);
+                    break;
+                case "position":
+                    esperaCerca();
+                    posicio(paraules);
+                    break;
+                case "go":
+                    esperaCerca();
+                    go(paraules);
+                    break;
+                case "stop":
+                    jugador.setAturada(true);
+                    break;
+                case "quit":
+                    jugador.setAturada(true);
+                    esperaCerca();
+                    fil.shutdown();
+                    return;
+                default:
+                    break;
+            }
+        }
+        esperaCerca();
+        fil.shutdown();
+    }
+
+    /**
+     * Escriu una línia de resposta. Les escriuen tant el fil de les ordres
+     * com el de la cerca.
+     *
+     * @param linia text de la línia
+     */
+    private static synchronized void envia(String linia) {
+        System.out.println(linia);
+        System.out.flush();
+    }
+
+    /**
+     * Espera que acabi la cerca en curs, si n'hi ha, abans d'una ordre que
+     * canvia la posició o el jugador
+     */
+    private void esperaCerca() {
+        if (cerca == null) return;
+        try {
+            cerca.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            envia("info string error a la cerca: " + ex.getCause());
+        }
+    }
+
+    /**
+     * Crea el jugador amb totes les opcions. Només cal quan canvia la mida
+     * de la taula; la resta d'opcions es canvien sobre el mateix jugador.
+     */
+    private void creaJugador() {
+        jugador = new MiniMassimo(profunditat, true, true, midaTaula, SENSE_LIMIT_MS);
+        jugador.setPVS(pvs);
+        jugador.setTactica(tactica);
+        jugador.setSimetria(simetria);
+        jugador.setLlindarFinal(llindarFinal);
+        jugador.setAjudants(ajudants);
+        jugador.setFitxesPerGuanyar(k);
+        jugador.setObservador((p, valor, columna, nodes, temps) -> envia(String.format("info depth %d score %s nodes %d nps %.0f time %d pv %d",
+                p, puntuacio(valor), nodes, temps == 0 ? 0 : nodes * 1e9 / temps, temps / 1000000, columna)));
+    }
+
+    /**
+     * Executa setoption
+     *
+     * @param linia ordre sencera: setoption name NOM [value VALOR]
+     */
+    private void opcio(String linia) {
+        int posNom = linia.indexOf(" name ");
+        if (posNom < 0) return;
+        int posValor = linia.indexOf(" value ", posNom);
+        String nom = (posValor < 0 ? linia.substring(posNom + 6) : linia.substring(posNom + 6, posValor)).trim();
+        String valor = posValor < 0 ? "" : linia.substring(posValor + 7).trim();
+        try {
+            switch (nom.toLowerCase()) {
+                case "amplada":
+                    canviaRegles(Integer.parseInt(valor), alcada, k);
+                    break;
+                case "alcada":
+                    canviaRegles(amplada, Integer.parseInt(valor), k);
+                    break;
+                case "k":
+                    canviaRegles(amplada, alcada, Integer.parseInt(valor));
+                    break;
+                case "profunditat":
+                    profunditat = Integer.parseInt(valor);
+                    break;
+                case "taula":
+                    midaTaula = Integer.parseInt(valor);
+                    jugador.setAjudants(0); // Els fils de l'anterior no han de quedar vius
+                    creaJugador();
+                    break;
+                case "pvs":
+                    pvs = Boolean.parseBoolean(valor);
+                    jugador.setPVS(pvs);
+                    break;
+                case "tactica":
+                    tactica = Boolean.parseBoolean(valor);
+                    jugador.setTactica(tactica);
+                    break;
+                case "simetria":
+                    simetria = Boolean.parseBoolean(valor);
+                    jugador.setSimetria(simetria);
+                    break;
+                case "llindarfinal":
+                    llindarFinal = Integer.parseInt(valor);
+                    jugador.setLlindarFinal(llindarFinal);
+                    break;
+                case "ajudants":
+                    ajudants = Integer.parseInt(valor);
+                    jugador.setAjudants(ajudants);
+                    break;
+                case "clear hash":
+                    jugador.novaPartida();
+                    break;
+                default:
+                    envia("info string opció desconeguda: " + nom);
+            }
+        } catch (IllegalArgumentException ex) { // També NumberFormatException i les mides que TaulerBits no admet
+            envia("info string valor no vàlid per a " + nom + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Canvia les mides del tauler o K. Les posicions de les taules s'han
+     * cercat amb les regles d'abans, així que es buiden.
+     *
+     * @param novaAmplada nombre de columnes
+     * @param novaAlcada nombre de files
+     * @param nouK fitxes en línia per guanyar
+     * @throws IllegalArgumentException si TaulerBits no admet les mides; llavors no es canvia res
+     */
+    private void canviaRegles(int novaAmplada, int novaAlcada, int nouK) {
+        TaulerBits nou = new TaulerBits(novaAmplada, novaAlcada, nouK);
+        if (novaAmplada != amplada || novaAlcada != alcada || nouK != k) jugador.novaPartida();
+        amplada = novaAmplada;
+        alcada = novaAlcada;
+        k = nouK;
+        jugador.setFitxesPerGuanyar(k);
+        tauler = nou;
+    }
+
+    /**
+     * Executa position
+     *
+     * @param paraules ordre separada per espais
+     */
+    private void posicio(String[] paraules) {
+        tauler = new TaulerBits(amplada, alcada, k);
+        int i = 1;
+        while (i < paraules.length && !paraules[i].equals("moves")) i++;
+        for (i++; i < paraules.length; i++) {
+            int col;
+            try {
+                col = Integer.parseInt(paraules[i]);
+            } catch (NumberFormatException ex) {
+                col = -1;
+            }
+            if (col < 0 || col >= amplada || !tauler.movpossible(col) || partidaAcabada()) {
+                envia("info string moviment il·legal: " + paraules[i]);
+                return;
+            }
+            tauler.makeMove(col);
+        }
+    }
+
+    /**
+     * Indica si la posició actual ja no té moviments: algú ha guanyat o el
+     * tauler és ple
+     *
+     * @return true si la partida s'ha acabat
+     */
+    private boolean partidaAcabada() {
+        return !tauler.espotmoure() || (tauler.getNombreJugades() > 0 && tauler.guanyaPer(tauler.getUltimaCella(), -tauler.getTorn()));
+    }
+
+    /**
+     * Executa go: llança la cerca al fil de la cerca i torna de seguida
+     *
+     * @param paraules ordre separada per espais
+     */
+    private void go(String[] paraules) {
+        int p = profunditat;
+        long tempsMs = SENSE_LIMIT_MS;
+        try {
+            for (int i = 1; i < paraules.length; i++) {
+                if (paraules[i].equals("depth") && i + 1 < paraules.length) p = Integer.parseInt(paraules[++i]);
+                else if (paraules[i].equals("movetime") && i + 1 < paraules.length) tempsMs = Long.parseLong(paraules[++i]);
+                else if (paraules[i].equals("infinite")) p = PROFUNDITAT_MAXIMA;
+            }
+        } catch (NumberFormatException ex) {
+            envia("info string límit no vàlid: " + ex.getMessage());
+            return;
+        }
+        if (partidaAcabada()) {
+            envia("bestmove (none)");
+            return;
+        }
+        jugador.setProfunditat(p);
+        jugador.setTempsPerMoviment(tempsMs);
+        jugador.setAturada(false);
+        final TaulerBits posicio = tauler;
+        cerca = fil.submit(() -> {
+            int col = jugador.moviment(posicio);
+            EstadistiquesCerca e = jugador.getEstadistiques();
+            envia(String.format("info depth %d score %s nodes %d nps %.0f time %d pv %d string %s", e.getProfunditat(),
+                    puntuacio(e.getValor()), e.getNodes(), e.getNodesPerSegon(), e.getTemps() / 1000000, col, e.getOrigen()));
+            envia("bestmove " + col);
+        });
+    }
+
+    /**
+     * Valor en el format de les línies info
+     *
+     * @param valor valor per al jugador que mou
+     * @return "win" o "loss" si és segur, "cp VALOR" si no
+     */
+    private static String puntuacio(int valor) {
+        if (valor >= 1000000) return "win";
+        if (valor <= -1000000) return "loss";
+        return "cp " + valor;
+    }
+}
@@ -0,0 +1,180 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Perft: comprova la generació de moviments i la detecció de victòries de
+ * TaulerBits contra el Tauler de la llibreria, que és la referència de les
+ * regles.
+ *
+ * Per a cada posició inicial es recorren totes les partides fins a una
+ * profunditat fixa amb les dues representacions i es compten les fulles
+ * (posicions a la profunditat demanada), les victòries i les taules que
+ * s'hi troben pel camí. Una posició on acaba de guanyar algú o sense
+ * columnes lliures no s'expandeix. Amb Tauler es fa servir el camí de Juga2
+ * (movpossible, afegeix i solucio sobre una còpia); amb TaulerBits, el de la
+ * cerca (makeMove, guanyaPer i unmakeMove).
+ *
+ * Si els recomptes no coincideixen es recorren totes dues alhora fins a
+ * trobar la primera posició on no estan d'acord, s'escriuen les jugades que
+ * hi porten i el programa acaba amb codi 1.
+ *
+ * Ús: Perft [profunditat] [posicions aleatòries] [mida]
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class Perft {
+
+    // Índexs dels recomptes
+    private static final int NODES = 0, FULLES = 1, VICTORIES = 2, TAULES = 3;
+
+    public static void main(String[] args) {
+        int profunditat = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        int nPosicions = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int mida = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        Tauler[] posicions = new Tauler[nPosicions + 1];
+        int[] colors = new int[nPosicions + 1];
+        posicions[0] = new Tauler(mida); // El tauler buit i posicions de mig joc
+        colors[0] = 1;
+        PosicionsAleatories.omple(posicions, colors, 1, mida, 8, 32, new Random(2024));
+
+        long nodesTauler = 0, nodesBits = 0, tempsTauler = 0, tempsBits = 0;
+        System.out.printf("%4s %12s %10s %10s %14s %14s%n", "Pos.", "Fulles", "Victòries", "Taules", "Tauler pos/s", "Bits pos/s");
+        for (int i = 0; i < posicions.length; i++) {
+            long[] referencia = new long[4];
+            long inici = System.nanoTime();
+            perft(posicions[i], colors[i], profunditat, referencia);
+            long tTauler = System.nanoTime() - inici;
+
+            long[] bits = new long[4];
+            inici = System.nanoTime();
+            perft(new TaulerBits(posicions[i], colors[i]), profunditat, bits);
+            long tBits = System.nanoTime() - inici;
+
+            System.out.printf("%4d %12d %10d %10d %14.0f %14.0f%n", i, referencia[FULLES], referencia[VICTORIES],
+                    referencia[TAULES], referencia[NODES] * 1e9 / tTauler, bits[NODES] * 1e9 / tBits);
+            if (!Arrays.equals(referencia, bits)) {
+                System.out.println("Recomptes diferents a la posició " + i + ": Tauler " + Arrays.toString(referencia)
+                        + ", TaulerBits " + Arrays.toString(bits) + " (nodes, fulles, victòries, taules)");
+                String cami = busca(posicions[i], new TaulerBits(posicions[i], colors[i]), colors[i], profunditat, "");
+                System.out.println(cami != null ? cami : "No s'ha trobat cap posició diferent");
+                System.exit(1);
+            }
+            nodesTauler += referencia[NODES];
+            nodesBits += bits[NODES];
+            tempsTauler += tTauler;
+            tempsBits += tBits;
+        }
+        System.out.printf("Tot correcte. Tauler: %.0f pos/s; TaulerBits: %.0f pos/s (%.1fx)%n", nodesTauler * 1e9 / tempsTauler,
+                nodesBits * 1e9 / tempsBits, (double) tempsTauler / tempsBits * nodesBits / nodesTauler);
+    }
+
+    /**
+     * Perft amb el Tauler de la llibreria. Com que no es poden desfer
+     * moviments, cada fill és una còpia.
+     *
+     * @param t posició
+     * @param color color a qui toca tirar
+     * @param profunditat plies que queden
+     * @param comptes recomptes on se sumen els resultats
+     */
+    private static void perft(Tauler t, int color, int profunditat, long[] comptes) {
+        comptes[NODES]++;
+        if (profunditat == 0) {
+            comptes[FULLES]++;
+            return;
+        }
+        for (int col = 0; col < t.getMida(); col++) {
+            if (!t.movpossible(col)) continue;
+            Tauler fill = new Tauler(t);
+            fill.afegeix(col, color);
+            if (fill.solucio(col, color)) {
+                comptes[NODES]++;
+                comptes[VICTORIES]++;
+            } else if (!fill.espotmoure()) {
+                comptes[NODES]++;
+                comptes[TAULES]++;
+            } else {
+                perft(fill, -color, profunditat - 1, comptes);
+            }
+        }
+    }
+
+    /**
+     * Perft amb la representació de la cerca, movent i desfent sobre el
+     * mateix tauler
+     *
+     * @param t posició, amb el torn del jugador que ha de tirar
+     * @param profunditat plies que queden
+     * @param comptes recomptes on se sumen els resultats
+     */
+    private static void perft(TaulerBits t, int profunditat, long[] comptes) {
+        comptes[NODES]++;
+        if (profunditat == 0) {
+            comptes[FULLES]++;
+            return;
+        }
+        int color = t.getTorn();
+        for (int col = 0; col < t.getAmplada(); col++) {
+            if (!t.movpossible(col)) continue;
+            t.makeMove(col);
+            if (t.guanyaPer(t.getUltimaCella(), color)) {
+                comptes[NODES]++;
+                comptes[VICTORIES]++;
+            } else if (!t.espotmoure()) {
+                comptes[NODES]++;
+                comptes[TAULES]++;
+            } else {
+                perft(t, profunditat - 1, comptes);
+            }
+            t.unmakeMove(col);
+        }
+    }
+
+    /**
+     * Recorre les dues representacions alhora i compara a cada posició les
+     * fitxes, les columnes lliures i les victòries
+     *
+     * @param t posició de referència
+     * @param bits la mateixa posició amb bitboards
+     * @param color color a qui toca tirar
+     * @param profunditat plies que queden
+     * @param cami jugades fins a la posició, per a l'informe
+     * @return descripció de la primera diferència, null si no n'hi ha cap
+     */
+    private static String busca(Tauler t, TaulerBits bits, int color, int profunditat, String cami) {
+        int mida = t.getMida();
+        for (int fila = 0; fila < mida; fila++) {
+            for (int col = 0; col < mida; col++) {
+                if (t.getColor(fila, col) != bits.getColor(fila, col)) {
+                    return "Jugades [" + cami + "]: la cel·la (" + fila + ", " + col + ") val " + t.getColor(fila, col)
+                            + " a Tauler i " + bits.getColor(fila, col) + " a TaulerBits";
+                }
+            }
+        }
+        if (t.espotmoure() != bits.espotmoure()) return "Jugades [" + cami + "]: espotmoure no coincideix";
+        if (profunditat == 0) return null;
+        for (int col = 0; col < mida; col++) {
+            if (t.movpossible(col) != bits.movpossible(col)) {
+                return "Jugades [" + cami + "]: movpossible(" + col + ") no coincideix";
+            }
+            if (!t.movpossible(col)) continue;
+            Tauler fill = new Tauler(t);
+            fill.afegeix(col, color);
+            bits.makeMove(col);
+            String seguent = cami.isEmpty() ? "" + col : cami + " " + col;
+            boolean guanya = fill.solucio(col, color);
+            String diferencia = null;
+            if (guanya != bits.guanyaPer(bits.getUltimaCella(), color) || guanya != bits.haGuanyat(color)) {
+                diferencia = "Jugades [" + seguent + "]: solucio diu " + guanya + " i TaulerBits no hi està d'acord";
+            } else if (!guanya && fill.espotmoure()) {
+                diferencia = busca(fill, bits, -color, profunditat - 1, seguent);
+            }
+            bits.unmakeMove(col);
+            if (diferencia != null) return diferencia;
+        }
+        return null;
+    }
+}
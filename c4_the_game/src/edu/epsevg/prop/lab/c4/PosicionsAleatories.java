@@ -0,0 +1,54 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.util.Random;
+
+/**
+ * PosicionsAleatories: posicions de mig joc fetes amb moviments aleatoris,
+ * sense cap victòria i amb alguna columna lliure, per a les proves
+ * (Perft, ProvaParallel) i els benchmarks. Amb la mateixa llavor sempre
+ * surten les mateixes posicions.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+final class PosicionsAleatories {
+
+    private PosicionsAleatories() {
+    }
+
+    /**
+     * Omple les posicions a partir d'un índex. Cada posició juga entre
+     * minMoviments i maxMoviments - 1 moviments aleatoris; els que cauen en
+     * una columna plena no es fan.
+     *
+     * @param posicions array on es deixen els taulers
+     * @param colors array on es deixa el color a qui toca tirar a cada tauler
+     * @param primera primera posició a omplir; les anteriors no es toquen
+     * @param mida mida del tauler
+     * @param minMoviments mínim de moviments aleatoris
+     * @param maxMoviments màxim de moviments aleatoris, exclòs
+     * @param r generador aleatori
+     */
+    static void omple(Tauler[] posicions, int[] colors, int primera, int mida,
+            int minMoviments, int maxMoviments, Random r) {
+        int i = primera;
+        while (i < posicions.length) {
+            Tauler t = new Tauler(mida);
+            int color = 1;
+            boolean valida = true;
+            int moviments = minMoviments + r.nextInt(maxMoviments - minMoviments);
+            for (int m = 0; m < moviments && valida; m++) {
+                int col = r.nextInt(mida);
+                if (!t.movpossible(col)) continue;
+                t.afegeix(col, color);
+                valida = !t.solucio(col, color);
+                color = -color;
+            }
+            if (valida && t.espotmoure()) {
+                posicions[i] = t;
+                colors[i] = color;
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Mesura el temps, els nodes i els nodes/s de la cerca paral·lela de
+ * MiniMassimo amb 1, 2, 4 i 8 fils sobre un conjunt fix de posicions, en
+ * calcula l'acceleració respecte de la d'un fil i comprova que tria els
+ * mateixos moviments que la cerca seqüencial.
+ *
+ * Ús: ProvaParallel [profunditat] [posicions]
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class ProvaParallel {
+
+    public static void main(String[] args) {
+        int profunditat = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int nPosicions = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Tauler[] posicions = new Tauler[nPosicions];
+        int[] colors = new int[nPosicions];
+        PosicionsAleatories.omple(posicions, colors, 0, 8, 8, 24, new Random(2024));
+
+        // Escalfament, perquè la primera mesura no pagui la compilació JIT
+        ForkJoinPool escalfament = new ForkJoinPool(1);
+        for (int i = 0; i < nPosicions; i++) {
+            MiniMassimo jugador = new MiniMassimo(profunditat, true, true);
+            jugador.setPool(escalfament);
+            jugador.moviment(posicions[i], colors[i]);
+        }
+        escalfament.shutdown();
+
+        // Moviments de la cerca seqüencial, per comprovar que la paral·lela tria els mateixos
+        int[] referencia = new int[nPosicions];
+        for (int i = 0; i < nPosicions; i++) {
+            MiniMassimo jugador = new MiniMassimo(profunditat, true, true);
+            jugador.setPool(null);
+            referencia[i] = jugador.moviment(posicions[i], colors[i]);
+        }
+
+        // L'acceleració es mesura respecte de la mateixa cerca paral·lela amb un sol fil: la
+        // seqüencial cerca cada moviment de l'arrel amb la finestra sencera i explora més nodes
+        long tempsUnFil = 0;
+        for (int fils : new int[]{1, 2, 4, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(fils);
+            int diferents = 0;
+            long nodes = 0;
+            long inici = System.nanoTime();
+            for (int i = 0; i < nPosicions; i++) {
+                MiniMassimo jugador = new MiniMassimo(profunditat, true, true);
+                jugador.setPool(pool);
+                if (jugador.moviment(posicions[i], colors[i]) != referencia[i]) diferents++;
+                nodes += jugador.getNodesMoviment();
+            }
+            long ms = Math.max((System.nanoTime() - inici) / 1000000, 1);
+            pool.shutdown();
+            if (fils == 1) tempsUnFil = ms;
+            System.out.printf("Fils: %d  Temps: %d ms  Nodes: %d  Nodes/s: %.0f  Acceleració: %.2f  Moviments diferents: %d%n",
+                    fils, ms, nodes, nodes * 1000.0 / ms, (double) tempsUnFil / ms, diferents);
+        }
+    }
+}
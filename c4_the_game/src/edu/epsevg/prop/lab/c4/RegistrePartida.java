@@ -0,0 +1,291 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RegistrePartida: una partida jugada, amb els jugadors, les mides, les
+ * columnes de tots els moviments i el temps i els nodes de cadascun, per
+ * poder-la reproduir (vegeu ReprodueixPartides).
+ *
+ * Cada partida ocupa una línia de text amb camps separats per tabuladors:
+ * "C4P1", mida, K, resultat (1, -1 o 0), nom i configuració del jugador del
+ * color 1, nom i configuració del del color -1 i els moviments separats per
+ * espais. Un moviment és "columna/microsegons/nodes", o només "columna" si
+ * no l'ha triat cap jugador (les jugades d'obertura de Torneig). Els
+ * fitxers de partides només s'hi afegeixen línies.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class RegistrePartida {
+
+    private static final String MAGIC = "C4P1";
+
+    private final int mida, k;
+    private final String[] noms = new String[2], configuracions = new String[2]; // Color 1 i color -1
+    private int[] columnes = new int[64];
+    private long[] temps = new long[64]; // Microsegons, -1 si el moviment no l'ha triat cap jugador
+    private long[] nodes = new long[64];
+    private int nMoviments;
+    private int resultat;
+
+    /**
+     * Constructora d'una partida que comença
+     *
+     * @param mida files i columnes del tauler
+     * @param k fitxes en línia per guanyar
+     * @param jugador1 jugador del color 1, que comença
+     * @param jugador2 jugador del color -1
+     */
+    public RegistrePartida(int mida, int k, Jugador jugador1, Jugador jugador2) {
+        this(mida, k, jugador1.nom(), configuracio(jugador1), jugador2.nom(), configuracio(jugador2));
+    }
+
+    /**
+     * Constructora amb els noms i les configuracions ja en text
+     *
+     * @param mida files i columnes del tauler
+     * @param k fitxes en línia per guanyar
+     * @param nom1 nom del jugador del color 1
+     * @param configuracio1 configuració del jugador del color 1
+     * @param nom2 nom del jugador del color -1
+     * @param configuracio2 configuració del jugador del color -1
+     */
+    public RegistrePartida(int mida, int k, String nom1, String configuracio1, String nom2, String configuracio2) {
+        this.mida = mida;
+        this.k = k;
+        noms[0] = net(nom1);
+        noms[1] = net(nom2);
+        configuracions[0] = net(configuracio1);
+        configuracions[1] = net(configuracio2);
+    }
+
+    /**
+     * Configuració d'un jugador tal com es guarda al registre
+     *
+     * @param jugador jugador
+     * @return la de getConfiguracio si és un MiniMassimo, el nom de la classe si no
+     */
+    static String configuracio(Jugador jugador) {
+        return jugador instanceof MiniMassimo ? ((MiniMassimo) jugador).getConfiguracio() : jugador.getClass().getSimpleName();
+    }
+
+    /**
+     * Treu els caràcters que trencarien el format d'una línia
+     *
+     * @param text text d'un camp
+     * @return el text amb els tabuladors i els salts de línia canviats per espais
+     */
+    private static String net(String text) {
+        return text == null || text.isEmpty() ? "-" : text.replaceAll("[\\t\\r\\n]", " ");
+    }
+
+    /**
+     * Afegeix un moviment triat per un jugador
+     *
+     * @param columna columna on ha tirat
+     * @param tempsNs nanosegons que ha trigat a triar-lo
+     * @param nodesMoviment nodes explorats, 0 si el jugador no els compta
+     */
+    public void afegeix(int columna, long tempsNs, long nodesMoviment) {
+        if (nMoviments == columnes.length) {
+            columnes = Arrays.copyOf(columnes, 2 * nMoviments);
+            temps = Arrays.copyOf(temps, 2 * nMoviments);
+            nodes = Arrays.copyOf(nodes, 2 * nMoviments);
+        }
+        columnes[nMoviments] = columna;
+        temps[nMoviments] = tempsNs < 0 ? -1 : tempsNs / 1000;
+        nodes[nMoviments] = nodesMoviment;
+        nMoviments++;
+    }
+
+    /**
+     * Afegeix un moviment que no ha triat cap jugador, com les jugades
+     * d'obertura d'un torneig
+     *
+     * @param columna columna on s'ha tirat
+     */
+    public void afegeixForcat(int columna) {
+        afegeix(columna, -1, 0);
+    }
+
+    /**
+     * Setter del resultat
+     *
+     * @param resultat color guanyador, 0 si són taules
+     */
+    public void setResultat(int resultat) {
+        this.resultat = resultat;
+    }
+
+    /**
+     * Getter de la mida
+     *
+     * @return files i columnes del tauler
+     */
+    public int getMida() {
+        return mida;
+    }
+
+    /**
+     * Getter de K
+     *
+     * @return fitxes en línia per guanyar
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Getter del resultat
+     *
+     * @return color guanyador, 0 si són taules
+     */
+    public int getResultat() {
+        return resultat;
+    }
+
+    /**
+     * Nom d'un dels jugadors
+     *
+     * @param color color del jugador
+     * @return nom del jugador
+     */
+    public String getNom(int color) {
+        return noms[color == 1 ? 0 : 1];
+    }
+
+    /**
+     * Configuració d'un dels jugadors
+     *
+     * @param color color del jugador
+     * @return configuració del jugador, o el nom de la seva classe
+     */
+    public String getConfiguracio(int color) {
+        return configuracions[color == 1 ? 0 : 1];
+    }
+
+    /**
+     * Getter del nombre de moviments
+     *
+     * @return moviments de la partida, inclosos els forçats
+     */
+    public int getMoviments() {
+        return nMoviments;
+    }
+
+    /**
+     * Columna d'un moviment. El moviment i el fa el color 1 si i és parell i
+     * el color -1 si és senar.
+     *
+     * @param i índex del moviment
+     * @return columna on s'ha tirat
+     */
+    public int getColumna(int i) {
+        return columnes[i];
+    }
+
+    /**
+     * Temps d'un moviment
+     *
+     * @param i índex del moviment
+     * @return microsegons que ha pensat el jugador, -1 si és un moviment forçat
+     */
+    public long getTemps(int i) {
+        return temps[i];
+    }
+
+    /**
+     * Nodes d'un moviment
+     *
+     * @param i índex del moviment
+     * @return nodes explorats, 0 si el jugador no els compta
+     */
+    public long getNodes(int i) {
+        return nodes[i];
+    }
+
+    /**
+     * Línia del format de fitxer, sense el salt de línia
+     *
+     * @return la partida en text
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(32 + 16 * nMoviments);
+        sb.append(MAGIC).append('\t').append(mida).append('\t').append(k).append('\t').append(resultat);
+        sb.append('\t').append(noms[0]).append('\t').append(configuracions[0]);
+        sb.append('\t').append(noms[1]).append('\t').append(configuracions[1]).append('\t');
+        for (int i = 0; i < nMoviments; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(columnes[i]);
+            if (temps[i] >= 0) sb.append('/').append(temps[i]).append('/').append(nodes[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Llegeix una partida d'una línia
+     *
+     * @param linia línia escrita amb toString
+     * @return la partida
+     * @throws IllegalArgumentException si la línia no és una partida
+     */
+    public static RegistrePartida llegeix(String linia) {
+        String[] camps = linia.split("\t", -1);
+        if (camps.length != 9 || !camps[0].equals(MAGIC)) {
+            throw new IllegalArgumentException("La línia no és una partida: " + linia);
+        }
+        RegistrePartida r = new RegistrePartida(Integer.parseInt(camps[1]), Integer.parseInt(camps[2]),
+                camps[4], camps[5], camps[6], camps[7]);
+        r.resultat = Integer.parseInt(camps[3]);
+        if (!camps[8].isEmpty()) {
+            for (String moviment : camps[8].split(" ")) {
+                String[] parts = moviment.split("/");
+                if (parts.length == 1) {
+                    r.afegeixForcat(Integer.parseInt(parts[0]));
+                } else {
+                    r.afegeix(Integer.parseInt(parts[0]), Long.parseLong(parts[1]) * 1000, Long.parseLong(parts[2]));
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Llegeix totes les partides d'un fitxer
+     *
+     * @param fitxer camí del fitxer de partides
+     * @return les partides, en ordre; les línies buides es salten
+     * @throws IOException si no es pot llegir el fitxer
+     */
+    public static List<RegistrePartida> llegeixFitxer(String fitxer) throws IOException {
+        List<RegistrePartida> partides = new ArrayList<>();
+        for (String linia : Files.readAllLines(Paths.get(fitxer), StandardCharsets.UTF_8)) {
+            if (!linia.trim().isEmpty()) partides.add(llegeix(linia));
+        }
+        return partides;
+    }
+
+    /**
+     * Afegeix la partida al final d'un fitxer de partides, creant-lo si no
+     * existeix. Les partides que s'afegeixen des de fils diferents no es
+     * barregen.
+     *
+     * @param fitxer camí del fitxer
+     * @throws IOException si no es pot escriure
+     */
+    public void desa(String fitxer) throws IOException {
+        byte[] linia = (toString() + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (RegistrePartida.class) {
+            Files.write(Paths.get(fitxer), linia, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+}
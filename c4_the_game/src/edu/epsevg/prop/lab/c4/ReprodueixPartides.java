@@ -0,0 +1,164 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * ReprodueixPartides: torna a presentar a un jugador les posicions d'unes
+ * partides desades (vegeu RegistrePartida) i compara el que tria i el que
+ * triga amb el que hi ha al registre. Amb les partides on un moviment ha
+ * anat lent o s'ha perdut es poden reproduir els casos i comprovar si un
+ * canvi els millora o els empitjora.
+ *
+ * Només es reprodueixen els moviments del jugador amb el nom indicat. Per
+ * a cada partida es crea un jugador nou per color a partir de la
+ * configuració desada al registre i se li donen, en ordre, les posicions on
+ * li tocava moure, com si jugués la partida: així les taules que guarda
+ * d'un moviment a l'altre estan com a la partida original. Si el jugador
+ * creat no té la mateixa configuració que el registrat (no és un
+ * MiniMassimo, no hi ha el llibre, ponderava...), els seus moviments no es
+ * comparen i es compten com a omesos. Els moviments forçats (obertures de
+ * Torneig) no es reprodueixen.
+ *
+ * S'escriuen els moviments on la columna no coincideix i els que al
+ * registre havien trigat com a mínim el llindar, i al final el resum. Si
+ * s'indica un factor, el programa acaba amb codi 1 quan el temps total
+ * reproduït és més de factor vegades el registrat.
+ *
+ * Ús: ReprodueixPartides [fitxer] [nom del jugador, * per tots] [llindar ms] [factor]
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class ReprodueixPartides {
+
+    private long moviments, coincidencies;
+    private long tempsRegistrat, tempsAra; // Microsegons
+    private long nodesRegistrats, nodesAra;
+    private long omesos; // Moviments d'un jugador que no s'ha pogut tornar a crear igual
+
+    public static void main(String[] args) throws IOException {
+        String fitxer = args.length > 0 ? args[0] : "partides.txt";
+        String nom = args.length > 1 ? args[1] : "*";
+        long llindarMs = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        double factor = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+
+        // Crea el jugador a partir de la configuració registrada
+        Function<String, Jugador> fabrica = ReprodueixPartides::creaJugador;
+
+        List<RegistrePartida> partides = RegistrePartida.llegeixFitxer(fitxer);
+        ReprodueixPartides resum = new ReprodueixPartides();
+        for (int i = 0; i < partides.size(); i++) {
+            resum.reprodueix(i, partides.get(i), fabrica, nom, llindarMs * 1000);
+        }
+        System.out.println(resum);
+        if (factor > 0 && resum.tempsAra > factor * resum.tempsRegistrat) {
+            System.out.printf("El temps reproduït supera %.2f vegades el registrat%n", factor);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reprodueix els moviments d'una partida i n'acumula les comparacions
+     *
+     * @param index número de la partida al fitxer, per a l'informe
+     * @param partida partida desada
+     * @param fabrica crea el jugador a provar a partir de la configuració registrada, null si no pot
+     * @param nom nom al registre del jugador els moviments del qual es reprodueixen, "*" per tots
+     * @param llindar microsegons a partir dels quals s'escriu un moviment encara que coincideixi
+     */
+    private void reprodueix(int index, RegistrePartida partida, Function<String, Jugador> fabrica, String nom, long llindar) {
+        Jugador[] jugadors = new Jugador[2]; // Es creen quan fan falta: color 1 i color -1
+        boolean[] diferents = new boolean[2]; // El jugador creat no té la configuració registrada
+        Tauler t = new Tauler(partida.getMida());
+        int torn = 1;
+        for (int m = 0; m < partida.getMoviments(); m++) {
+            int registrada = partida.getColumna(m);
+            int j = torn == 1 ? 0 : 1;
+            boolean reproduir = partida.getTemps(m) >= 0 && (nom.equals("*") || nom.equals(partida.getNom(torn)));
+            if (reproduir && jugadors[j] == null && !diferents[j]) {
+                String configuracio = partida.getConfiguracio(torn);
+                Jugador jugador = fabrica.apply(configuracio);
+                if (jugador != null && RegistrePartida.configuracio(jugador).equals(configuracio)) {
+                    jugadors[j] = jugador;
+                } else {
+                    diferents[j] = true;
+                    System.out.printf("Partida %d: no es pot tornar a crear %s amb la configuració registrada (%s); no es compara%n",
+                            index, partida.getNom(torn), configuracio);
+                }
+            }
+            if (reproduir && diferents[j]) {
+                omesos++;
+            } else if (reproduir) {
+                long inici = System.nanoTime();
+                int col = jugadors[j].moviment(new Tauler(t), torn);
+                long temps = (System.nanoTime() - inici) / 1000;
+                long nodes = jugadors[j] instanceof MiniMassimo ? ((MiniMassimo) jugadors[j]).getNodesMoviment() : 0;
+
+                moviments++;
+                if (col == registrada) coincidencies++;
+                tempsRegistrat += partida.getTemps(m);
+                tempsAra += temps;
+                nodesRegistrats += partida.getNodes(m);
+                nodesAra += nodes;
+                if (col != registrada || partida.getTemps(m) >= llindar) {
+                    System.out.printf("Partida %d, moviment %d (%s): registrat columna %d en %.1f ms i %d nodes; ara columna %d en %.1f ms i %d nodes%n",
+                            index, m, partida.getNom(torn), registrada, partida.getTemps(m) / 1e3, partida.getNodes(m),
+                            col, temps / 1e3, nodes);
+                }
+            }
+            t.afegeix(registrada, torn); // La partida continua amb el moviment registrat
+            torn = -torn;
+        }
+    }
+
+    /**
+     * Crea un MiniMassimo a partir del text de getConfiguracio. La mida de la
+     * taula de transposició no es registra i es fa servir la de per defecte;
+     * el llibre es carrega de llibre.bin, com a Juga2, i la cerca paral·lela
+     * fa servir el pool comú.
+     *
+     * @param configuracio configuració registrada
+     * @return el jugador, o null si no és la d'un MiniMassimo o el jugador ponderava, cosa que aquí no es reprodueix
+     */
+    static Jugador creaJugador(String configuracio) {
+        Map<String, String> opcions = new HashMap<>();
+        for (String opcio : configuracio.split(" ")) {
+            int igual = opcio.indexOf('=');
+            if (igual > 0) opcions.put(opcio.substring(0, igual), opcio.substring(igual + 1));
+        }
+        if (!opcions.containsKey("profunditat") || Boolean.parseBoolean(opcions.get("ponderacio"))) return null;
+        try {
+            MiniMassimo m = new MiniMassimo(Integer.parseInt(opcions.get("profunditat")),
+                    Boolean.parseBoolean(opcions.get("poda")), Boolean.parseBoolean(opcions.get("ordenacio")),
+                    Boolean.parseBoolean(opcions.get("taula")) ? MiniMassimo.MIDA_TAULA_PER_DEFECTE : 0,
+                    Long.parseLong(opcions.get("tempsMs")));
+            m.setPVS(Boolean.parseBoolean(opcions.get("pvs")));
+            m.setTactica(Boolean.parseBoolean(opcions.get("tactica")));
+            m.setSimetria(Boolean.parseBoolean(opcions.get("simetria")));
+            m.setFitxesPerGuanyar(Integer.parseInt(opcions.get("k")));
+            m.setLlindarFinal(Integer.parseInt(opcions.get("llindarFinal")));
+            m.setAjudants(Integer.parseInt(opcions.get("ajudants")));
+            if (Boolean.parseBoolean(opcions.get("paral·lel"))) m.setPool(ForkJoinPool.commonPool());
+            if (Boolean.parseBoolean(opcions.get("llibre")) && new File("llibre.bin").exists()) {
+                m.setLlibre(new LlibreObertures("llibre.bin"));
+            }
+            return m;
+        } catch (NumberFormatException | IOException ex) { // Registre d'una altra versió o llibre il·legible
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (moviments == 0) return "Cap moviment reproduït" + (omesos > 0 ? " (" + omesos + " omesos)" : "");
+        return String.format("%d moviments: %d iguals (%.1f%%); temps %.1f s registrat, %.1f s ara (%.2fx); nodes %d registrats, %d ara; %d omesos",
+                moviments, coincidencies, 100.0 * coincidencies / moviments, tempsRegistrat / 1e6, tempsAra / 1e6,
+                tempsRegistrat == 0 ? 0 : (double) tempsAra / tempsRegistrat, nodesRegistrats, nodesAra, omesos);
+    }
+}
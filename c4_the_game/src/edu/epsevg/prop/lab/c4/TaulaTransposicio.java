@@ -0,0 +1,152 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.util.Arrays;
+
+/**
+ * TaulaTransposicio: taula de mida fixa que guarda el resultat de les
+ * posicions ja cercades, indexada pel hash Zobrist del tauler.
+ *
+ * Les entrades es guarden en arrays de primitius per no crear cap objecte
+ * durant la cerca. Cada posició de la taula té una sola entrada i, quan dues
+ * claus hi col·lideixen, es queda la nova si l'antiga és d'una cerca anterior
+ * o si la nova s'ha cercat com a mínim amb la mateixa profunditat.
+ *
+ * La taula es pot compartir entre diversos fils sense bloquejos: cada entrada
+ * són dos long (la clau i les dades) i es guarda la clau xor les dades. Si
+ * dos fils escriuen alhora la mateixa entrada i es barregen les dues
+ * meitats, la clau deixa de quadrar i l'entrada simplement no es troba.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class TaulaTransposicio {
+
+    /** El valor guardat és exacte */
+    public static final int EXACTA = 0;
+    /** El valor guardat és una cota inferior (hi ha hagut poda per dalt) */
+    public static final int COTA_INFERIOR = 1;
+    /** El valor guardat és una cota superior (cap fill ha superat alfa) */
+    public static final int COTA_SUPERIOR = 2;
+
+    /** Profunditat més gran que es pot guardar en una entrada */
+    public static final int PROFUNDITAT_MAXIMA = 0xFF;
+
+    private final long[] claus; // Clau de la posició xor les dades
+    // Dades empaquetades: valor (bits 0-31), profunditat (32-39), tipus (40-41), moviment + 1 (42-49), generació (50-57)
+    private final long[] dades;
+    private final int mascara;
+    private volatile int generacio;
+
+    /**
+     * Constructora
+     *
+     * @param entrades nombre d'entrades desitjat; s'arrodoneix a la potència de 2 inferior
+     */
+    public TaulaTransposicio(int entrades) {
+        int mida = Integer.highestOneBit(Math.max(entrades, 1));
+        this.claus = new long[mida];
+        this.dades = new long[mida];
+        this.mascara = mida - 1;
+        this.generacio = 1;
+    }
+
+    /**
+     * Indica que comença una cerca nova, de manera que les entrades de les
+     * cerques anteriors es poden substituir sempre
+     */
+    public void novaCerca() {
+        int g = (generacio + 1) & 0xFF;
+        generacio = g == 0 ? 1 : g; // La generació 0 indica una entrada buida
+    }
+
+    /**
+     * Esborra totes les entrades
+     */
+    public void buida() {
+        Arrays.fill(claus, 0);
+        Arrays.fill(dades, 0);
+    }
+
+    /**
+     * Busca l'entrada d'una posició
+     *
+     * @param clau hash de la posició
+     * @return dades empaquetades de l'entrada si hi és, 0 si no
+     */
+    public long cerca(long clau) {
+        int i = (int) clau & mascara;
+        long d = dades[i];
+        if (d != 0 && (claus[i] ^ d) == clau) return d;
+        return 0;
+    }
+
+    /**
+     * Extreu el valor d'unes dades retornades per cerca
+     *
+     * @param dada dades de l'entrada
+     * @return valor guardat
+     */
+    public static int valor(long dada) {
+        return (int) dada;
+    }
+
+    /**
+     * Extreu la profunditat amb què es va cercar una entrada
+     *
+     * @param dada dades de l'entrada
+     * @return profunditat restant de la cerca que va guardar l'entrada
+     */
+    public static int profunditat(long dada) {
+        return (int) (dada >>> 32) & 0xFF;
+    }
+
+    /**
+     * Extreu el tipus de valor d'una entrada
+     *
+     * @param dada dades de l'entrada
+     * @return EXACTA, COTA_INFERIOR o COTA_SUPERIOR
+     */
+    public static int tipus(long dada) {
+        return (int) (dada >>> 40) & 0x3;
+    }
+
+    /**
+     * Extreu el millor moviment d'una entrada
+     *
+     * @param dada dades de l'entrada
+     * @return columna del millor moviment, -1 si no n'hi ha
+     */
+    public static int moviment(long dada) {
+        return ((int) (dada >>> 42) & 0xFF) - 1;
+    }
+
+    /**
+     * Guarda el resultat de cercar una posició si la política de substitució ho permet
+     *
+     * @param clau hash de la posició
+     * @param profunditat profunditat restant amb què s'ha cercat; es guarda com a molt PROFUNDITAT_MAXIMA
+     * @param tipus EXACTA, COTA_INFERIOR o COTA_SUPERIOR
+     * @param valor valor obtingut
+     * @param moviment columna del millor moviment, -1 si no n'hi ha
+     */
+    public void guarda(long clau, int profunditat, int tipus, int valor, int moviment) {
+        // Més no hi cap als 8 bits. Guardar-la menor només fa que l'entrada serveixi per a menys cerques.
+        profunditat = Math.max(0, Math.min(profunditat, PROFUNDITAT_MAXIMA));
+        int i = (int) clau & mascara;
+        int g = generacio;
+        long antiga = dades[i];
+        boolean substituir = antiga == 0 // Entrada buida
+                || (claus[i] ^ antiga) == clau // Mateixa posició
+                || (int) (antiga >>> 50) != g // Entrada d'una cerca anterior
+                || profunditat >= profunditat(antiga); // Com a mínim igual de profunda
+        if (substituir) {
+            long d = (valor & 0xFFFFFFFFL)
+                    | ((long) profunditat << 32)
+                    | ((long) tipus << 40)
+                    | ((long) (moviment + 1) << 42)
+                    | ((long) g << 50);
+            dades[i] = d;
+            claus[i] = clau ^ d;
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.util.Random;
+
+/**
+ * TaulerBits: representació interna del tauler amb bitboards per a la cerca
+ * de MiniMassimo.
+ *
+ * El tauler té una amplada i una alçada de fins a 16 i es guanya amb K
+ * fitxes en línia. Cada color té un bitboard de tantes paraules de 64 bits
+ * com calgui on el bit (col * alcada + fila) indica si hi ha una fitxa seva
+ * a la cel·la; un tauler de 8x8 hi cap en una sola paraula.
+ *
+ * També manté el hash Zobrist de la posició, que s'actualitza a cada
+ * moviment i es fa servir com a clau de la taula de transposició, el de
+ * la seva reflexió horitzontal, per poder compartir l'entrada entre les
+ * dues posicions simètriques, i el recompte de fitxes de cada finestra de K
+ * cel·les, que serveix tant per a l'heurística com per detectar les
+ * victòries. A cada moviment només es toquen les finestres que passen per
+ * la cel·la on ha caigut la fitxa, de manera que el cost d'un moviment no
+ * depèn de la mida del tauler.
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class TaulerBits {
+
+    /** Fitxes en línia que calen per guanyar si no se n'indiquen unes altres */
+    public static final int K_PER_DEFECTE = 4;
+
+    // Nombres aleatoris Zobrist per a cada color i cel·la. La llavor és fixa perquè el hash d'una posició sigui sempre el mateix.
+    private static final int CELLES_MAXIMES = Finestres.MIDA_MAXIMA * Finestres.MIDA_MAXIMA;
+    private static final long[][] ZOBRIST = new long[2][CELLES_MAXIMES];
+
+    static {
+        Random r = new Random(0x4D617373696D6FL);
+        // Primer les 64 primeres cel·les de cada color, en el mateix ordre que quan el tauler
+        // era d'una sola paraula, perquè els hashos dels taulers de 8x8 (i els llibres) no canviïn
+        for (int c = 0; c < 2; c++) {
+            for (int i = 0; i < 64; i++) ZOBRIST[c][i] = r.nextLong();
+        }
+        for (int c = 0; c < 2; c++) {
+            for (int i = 64; i < CELLES_MAXIMES; i++) ZOBRIST[c][i] = r.nextLong();
+        }
+    }
+
+    private final int amplada, alcada;
+    private final long[] fitxesP1, fitxesP2; // Bits del color 1 i del color -1
+    private final int[] alcades; // Nombre de fitxes de cada columna
+    private int torn; // Color del jugador a qui toca tirar
+    private long hash; // Hash Zobrist de les fitxes del tauler
+    private long hashMirall; // Hash Zobrist del tauler reflectit horitzontalment
+    private final int[] jugades; // Cel·les dels moviments fets des de la construcció, en ordre
+    private int nJugades;
+    private int nFitxes; // Fitxes al tauler, incloses les de la posició inicial
+    private int centralsP1, centralsP2; // Fitxes de cada color a les columnes del mig
+
+    private final Finestres finestres; // Taules de finestres de les mides del tauler, compartides
+    private final int[] iniciCella, perCella; // Índex cel·la -> finestres, copiat de finestres per accedir-hi directament
+
+    // Avaluació incremental. L'estat de cada finestra és n1 + (k + 1) * n2, on
+    // n1 i n2 són les fitxes del color 1 i del color -1 que hi ha. Els totals
+    // empaqueten en camps de 16 bits el nombre de finestres a les que falta
+    // una fitxa i a les que en falten dues d'un sol color per ser plenes.
+    private final int[] estats;
+    private final long[] contribucio;
+    private final int base; // El que suma a l'estat d'una finestra una fitxa del color -1
+    private final int plenaP1, plenaP2, faltaUnaP1, faltaUnaP2; // Estats d'una finestra guanyada o a punt de ser-ho
+    private long totals;
+
+    /**
+     * Constructora a partir del tauler de la llibreria, amb K_PER_DEFECTE
+     * fitxes en línia per guanyar com a les regles de Juga2
+     *
+     * @param t tauler del que es copien les fitxes
+     * @param torn color del jugador a qui toca tirar
+     */
+    public TaulerBits(Tauler t, int torn) {
+        this(t, torn, K_PER_DEFECTE);
+    }
+
+    /**
+     * Constructora a partir del tauler de la llibreria
+     *
+     * @param t tauler del que es copien les fitxes
+     * @param torn color del jugador a qui toca tirar
+     * @param k fitxes en línia que calen per guanyar
+     */
+    public TaulerBits(Tauler t, int torn, int k) {
+        this(t.getMida(), t.getMida(), k);
+
+        // Col·locar les fitxes del tauler de la llibreria
+        for (int col = 0; col < amplada; col++) {
+            for (int fila = 0; fila < alcada; fila++) {
+                int color = t.getColor(fila, col);
+                if (color == 0) break; // Les fitxes cauen, així que la resta de la columna és buida
+                this.torn = color;
+                makeMove(col);
+            }
+        }
+        this.torn = torn;
+        this.nJugades = 0; // Les fitxes del tauler inicial no compten com a moviments
+    }
+
+    /**
+     * Constructora d'un tauler buit, on comença el color 1
+     *
+     * @param amplada nombre de columnes, com a molt 16
+     * @param alcada nombre de files, com a molt 16
+     * @param k fitxes en línia que calen per guanyar, entre 2 i el costat més llarg del tauler
+     */
+    public TaulerBits(int amplada, int alcada, int k) {
+        if (amplada < 1 || alcada < 1 || amplada > Finestres.MIDA_MAXIMA || alcada > Finestres.MIDA_MAXIMA) {
+            throw new IllegalArgumentException("TaulerBits només admet taulers de fins a "
+                    + Finestres.MIDA_MAXIMA + "x" + Finestres.MIDA_MAXIMA);
+        }
+        if (k < 2 || k > Math.max(amplada, alcada)) {
+            throw new IllegalArgumentException("Les fitxes en línia per guanyar han d'estar entre 2 i "
+                    + Math.max(amplada, alcada) + " en un tauler de " + amplada + "x" + alcada);
+        }
+        this.amplada = amplada;
+        this.alcada = alcada;
+        this.torn = 1;
+        int paraules = (amplada * alcada + 63) >>> 6;
+        this.fitxesP1 = new long[paraules];
+        this.fitxesP2 = new long[paraules];
+        this.alcades = new int[amplada];
+        this.jugades = new int[amplada * alcada];
+
+        this.finestres = Finestres.de(amplada, alcada, k);
+        this.iniciCella = finestres.iniciCella;
+        this.perCella = finestres.perCella;
+        this.estats = new int[finestres.nombre];
+        this.contribucio = finestres.contribucio;
+        this.base = finestres.base;
+        this.plenaP1 = k;
+        this.plenaP2 = k * base;
+        this.faltaUnaP1 = k - 1;
+        this.faltaUnaP2 = (k - 1) * base;
+    }
+
+    /**
+     * Constructora de còpia
+     *
+     * @param t tauler a copiar
+     */
+    public TaulerBits(TaulerBits t) {
+        this.amplada = t.amplada;
+        this.alcada = t.alcada;
+        this.fitxesP1 = t.fitxesP1.clone();
+        this.fitxesP2 = t.fitxesP2.clone();
+        this.alcades = t.alcades.clone();
+        this.torn = t.torn;
+        this.hash = t.hash;
+        this.hashMirall = t.hashMirall;
+        this.jugades = t.jugades.clone();
+        this.nJugades = t.nJugades;
+        this.nFitxes = t.nFitxes;
+        this.centralsP1 = t.centralsP1;
+        this.centralsP2 = t.centralsP2;
+        this.estats = t.estats.clone();
+        this.totals = t.totals;
+        this.finestres = t.finestres;
+        this.iniciCella = t.iniciCella;
+        this.perCella = t.perCella;
+        this.contribucio = t.contribucio;
+        this.base = t.base;
+        this.plenaP1 = t.plenaP1;
+        this.plenaP2 = t.plenaP2;
+        this.faltaUnaP1 = t.faltaUnaP1;
+        this.faltaUnaP2 = t.faltaUnaP2;
+    }
+
+    /**
+     * Getter del nombre de columnes
+     *
+     * @return amplada del tauler
+     */
+    public int getAmplada() {
+        return amplada;
+    }
+
+    /**
+     * Getter del nombre de files
+     *
+     * @return alçada del tauler
+     */
+    public int getAlcada() {
+        return alcada;
+    }
+
+    /**
+     * Getter de les fitxes en línia que calen per guanyar
+     *
+     * @return K
+     */
+    public int getK() {
+        return finestres.k;
+    }
+
+    /**
+     * Getter del nombre de paraules de 64 bits del bitboard de cada color
+     *
+     * @return paraules que calen per a amplada * alcada cel·les
+     */
+    public int getParaules() {
+        return fitxesP1.length;
+    }
+
+    /**
+     * Getter d'una paraula del bitboard d'un color: el bit i de la paraula p
+     * és la cel·la 64 * p + i, és a dir, la columna (64 * p + i) / alcada i
+     * la fila (64 * p + i) % alcada
+     *
+     * @param color color de les fitxes
+     * @param paraula índex de la paraula, entre 0 i getParaules() - 1
+     * @return bits de les fitxes del color a la paraula
+     */
+    public long getFitxes(int color, int paraula) {
+        return color == 1 ? fitxesP1[paraula] : fitxesP2[paraula];
+    }
+
+    /**
+     * Nombre de fitxes d'un color a les columnes del mig (una, o dues si
+     * l'amplada és parell)
+     *
+     * @param color color del que es compten les fitxes
+     * @return fitxes del color a les columnes centrals
+     */
+    public int getFitxesCentrals(int color) {
+        return color == 1 ? centralsP1 : centralsP2;
+    }
+
+    /**
+     * Getter de l'ordre de les columnes segons la proximitat al centre. L'array
+     * és compartit entre tots els taulers de la mida i no s'ha de modificar.
+     *
+     * @return índexs de les columnes, de la central cap als costats
+     */
+    public int[] getOrdreCentre() {
+        return finestres.ordreCentre;
+    }
+
+    /**
+     * Retorna el color de la fitxa d'una cel·la
+     *
+     * @param fila fila de la cel·la
+     * @param col columna de la cel·la
+     * @return 1 o -1 si hi ha una fitxa d'aquest color, 0 si està buida
+     */
+    public int getColor(int fila, int col) {
+        int cella = col * alcada + fila;
+        long b = 1L << cella;
+        if ((fitxesP1[cella >>> 6] & b) != 0) return 1;
+        if ((fitxesP2[cella >>> 6] & b) != 0) return -1;
+        return 0;
+    }
+
+    /**
+     * Getter del hash Zobrist de la posició
+     *
+     * @return hash de les fitxes del tauler
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Valor que identifica les mides del tauler i K, per combinar-lo amb el
+     * hash quan unes mateixes cel·les poden venir de taulers amb regles
+     * diferents
+     *
+     * @return clau de les regles, la mateixa per a tots els taulers de les mateixes mides i K
+     */
+    public long getClauRegles() {
+        return finestres.clauRegles;
+    }
+
+    /**
+     * Hash canònic de la posició: el mateix per a la posició i per a la
+     * seva reflexió horitzontal, de manera que totes dues comparteixen
+     * entrada a les taules. És el més petit dels dos hashos.
+     *
+     * @return hash de la posició o de la reflexió, el que sigui més petit
+     */
+    public long getHashCanonic() {
+        return Math.min(hash, hashMirall);
+    }
+
+    /**
+     * Passa una columna de la posició a l'orientació del hash canònic, o al
+     * revés: si el hash canònic és el de la reflexió, la columna es
+     * reflecteix. Aplicar-la dos cops deixa la columna com estava.
+     *
+     * @param col columna, o -1 si no n'hi ha cap
+     * @return la columna en l'altra orientació, -1 si col és -1
+     */
+    public int columnaCanonica(int col) {
+        return col < 0 || hashMirall >= hash ? col : amplada - 1 - col;
+    }
+
+    /**
+     * Getter de la cel·la on ha caigut l'última fitxa
+     *
+     * @return índex (col * alcada + fila) de l'últim moviment, -1 si no se n'ha fet cap des de la construcció
+     */
+    public int getUltimaCella() {
+        return nJugades > 0 ? jugades[nJugades - 1] : -1;
+    }
+
+    /**
+     * Getter del nombre de moviments fets des de la construcció
+     *
+     * @return moviments fets i no desfets
+     */
+    public int getNombreJugades() {
+        return nJugades;
+    }
+
+    /**
+     * Getter del color a qui toca tirar
+     *
+     * @return color del jugador que fa el següent moviment
+     */
+    public int getTorn() {
+        return torn;
+    }
+
+    /**
+     * Deixa caure una fitxa del jugador a qui toca tirar i passa el torn
+     *
+     * @param col columna on es deixa caure la fitxa
+     */
+    public void makeMove(int col) {
+        int cella = col * alcada + alcades[col];
+        long b = 1L << cella;
+        int c = torn == 1 ? 0 : 1;
+        if (torn == 1) {
+            fitxesP1[cella >>> 6] |= b;
+            if (finestres.central[col]) centralsP1++;
+        } else {
+            fitxesP2[cella >>> 6] |= b;
+            if (finestres.central[col]) centralsP2++;
+        }
+        hash ^= ZOBRIST[c][cella];
+        hashMirall ^= ZOBRIST[c][cella + (amplada - 1 - 2 * col) * alcada];
+        actualitzaFinestres(cella, torn == 1 ? 1 : base);
+        alcades[col]++;
+        nFitxes++;
+        jugades[nJugades++] = cella;
+        torn = -torn;
+    }
+
+    /**
+     * Desfà l'últim moviment fet a una columna i retorna el torn a qui l'havia fet
+     *
+     * @param col columna de la que es treu la fitxa de dalt
+     */
+    public void unmakeMove(int col) {
+        alcades[col]--;
+        nFitxes--;
+        nJugades--;
+        torn = -torn;
+        int cella = col * alcada + alcades[col];
+        long b = ~(1L << cella);
+        int c = torn == 1 ? 0 : 1;
+        if (torn == 1) {
+            fitxesP1[cella >>> 6] &= b;
+            if (finestres.central[col]) centralsP1--;
+        } else {
+            fitxesP2[cella >>> 6] &= b;
+            if (finestres.central[col]) centralsP2--;
+        }
+        hash ^= ZOBRIST[c][cella];
+        hashMirall ^= ZOBRIST[c][cella + (amplada - 1 - 2 * col) * alcada];
+        actualitzaFinestres(cella, torn == 1 ? -1 : -base);
+    }
+
+    /**
+     * Comprova si es pot tirar a una columna
+     *
+     * @param col columna a comprovar
+     * @return true si la columna no és plena, false si ho és
+     */
+    public boolean movpossible(int col) {
+        return alcades[col] < alcada;
+    }
+
+    /**
+     * Compta les caselles que encara estan buides
+     *
+     * @return nombre de caselles sense fitxa
+     */
+    public int getCasellesBuides() {
+        return amplada * alcada - nFitxes;
+    }
+
+    /**
+     * Comprova si queda alguna columna on tirar
+     *
+     * @return true si hi ha alguna columna no plena, false si el tauler és ple
+     */
+    public boolean espotmoure() {
+        return nFitxes < amplada * alcada;
+    }
+
+    /**
+     * Comprova si un color té K fitxes en línia en alguna finestra del tauler
+     *
+     * @param color color a comprovar
+     * @return true si el color ha fet K en línia, false si no
+     */
+    public boolean haGuanyat(int color) {
+        int plena = color == 1 ? plenaP1 : plenaP2;
+        for (int estat : estats) {
+            if (estat == plena) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Comprova si un color té K en línia en alguna de les finestres que
+     * passen per una cel·la. Després d'un moviment, només la cel·la on ha
+     * caigut la fitxa pot haver fet una línia nova.
+     *
+     * @param cella índex de la cel·la (col * alcada + fila)
+     * @param color color a comprovar
+     * @return true si alguna línia de K per la cel·la és tota del color
+     */
+    public boolean guanyaPer(int cella, int color) {
+        int plena = color == 1 ? plenaP1 : plenaP2;
+        for (int i = iniciCella[cella], fi = iniciCella[cella + 1]; i < fi; i++) {
+            if (estats[perCella[i]] == plena) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Columnes on un color faria K en línia si hi tirés ara. Si el color no
+     * té cap finestra a la que només li falti una fitxa, no cal mirar res.
+     *
+     * @param color color que tiraria
+     * @return màscara amb el bit col activat per a cada columna guanyadora
+     */
+    public int columnesGuanyadores(int color) {
+        if (getFinestresFaltaUna(color) == 0) return 0;
+        int faltaUna = color == 1 ? faltaUnaP1 : faltaUnaP2;
+        int columnes = 0;
+        for (int col = 0; col < amplada; col++) {
+            if (alcades[col] == alcada) continue;
+            int cella = col * alcada + alcades[col];
+            for (int i = iniciCella[cella], fi = iniciCella[cella + 1]; i < fi; i++) {
+                if (estats[perCella[i]] == faltaUna) { // La cel·la buida de la finestra és aquesta
+                    columnes |= 1 << col;
+                    break;
+                }
+            }
+        }
+        return columnes;
+    }
+
+    /**
+     * Actualitza l'estat de les finestres que passen per una cel·la quan s'hi
+     * posa o s'hi treu una fitxa, i els totals que en depenen
+     *
+     * @param cella índex de la cel·la
+     * @param increment 1 o base si s'hi posa una fitxa del color 1 o -1; -1 o -base si s'hi treu
+     */
+    private void actualitzaFinestres(int cella, int increment) {
+        long t = totals;
+        for (int i = iniciCella[cella], fi = iniciCella[cella + 1]; i < fi; i++) {
+            int w = perCella[i];
+            int abans = estats[w];
+            int despres = abans + increment;
+            estats[w] = despres;
+            t += contribucio[despres] - contribucio[abans];
+        }
+        totals = t;
+    }
+
+    /**
+     * Nombre de finestres amb K - 1 fitxes del color i una cel·la buida
+     *
+     * @param color color del que es compten les fitxes
+     * @return nombre de finestres
+     */
+    public int getFinestresFaltaUna(int color) {
+        return (int) (totals >>> (color == 1 ? Finestres.FALTA_UNA_P1 : Finestres.FALTA_UNA_P2)) & 0xFFFF;
+    }
+
+    /**
+     * Nombre de finestres amb K - 2 fitxes del color i dues cel·les buides
+     *
+     * @param color color del que es compten les fitxes
+     * @return nombre de finestres
+     */
+    public int getFinestresFaltenDues(int color) {
+        return (int) (totals >>> (color == 1 ? Finestres.FALTEN_DUES_P1 : Finestres.FALTEN_DUES_P2)) & 0xFFFF;
+    }
+}
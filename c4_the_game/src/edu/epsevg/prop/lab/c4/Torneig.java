@@ -0,0 +1,389 @@
+package edu.epsevg.prop.lab.c4;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Torneig: enfronta jugadors sense interfície gràfica i en paral·lel, una
+ * partida per fil, i en treu les estadístiques.
+ *
+ * Cada partida crea jugadors nous amb la fàbrica de cada participant, perquè
+ * els jugadors guarden estat (MiniMassimo té la taula de transposició) i no
+ * es poden compartir entre fils. Les partides es juguen per parelles amb la
+ * mateixa obertura aleatòria i els colors canviats, de manera que dos
+ * jugadors deterministes no repeteixen sempre la mateixa partida.
+ *
+ * Les regles són les de Juga2: comença el color 1, la fitxa es posa amb
+ * afegeix i es guanya si solucio ho diu després del moviment; si ningú pot
+ * moure són taules. Un moviment il·legal, o una excepció del jugador, fa
+ * perdre la partida.
+ *
+ * Si s'indica un fitxer de partides, s'hi afegeix cada partida (vegeu
+ * RegistrePartida) per poder-la reproduir després.
+ *
+ * Ús: Torneig [round-robin|gauntlet] [partides per parella] [plies d'obertura] [fils] [fitxer de partides]
+ *
+ * @author Pau Ramos
+ * @author Ilarion Tsekot
+ */
+public class Torneig {
+
+    private static final int MIDA = 8;
+
+    private final List<Participant> participants = new ArrayList<>();
+    private final int pliesObertura;
+    private String fitxerPartides; // null si no es desen les partides
+    private int fallides; // Partides de l'últim juga que no s'han pogut acabar
+
+    /**
+     * Constructora
+     *
+     * @param pliesObertura moviments aleatoris amb què comença cada parella de partides
+     */
+    public Torneig(int pliesObertura) {
+        this.pliesObertura = pliesObertura;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        boolean gauntlet = args.length > 0 && args[0].equals("gauntlet");
+        int partides = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int obertura = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int fils = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        String fitxer = args.length > 4 ? args[4] : null;
+
+        // Definiu al vostre gust els participants. Amb gauntlet, el primer juga contra tots els altres.
+        Torneig torneig = new Torneig(obertura);
+        torneig.setFitxerPartides(fitxer);
+        torneig.afegeix("MiniMassimo d6 PVS", () -> {
+            MiniMassimo m = new MiniMassimo(6, true, true);
+            m.setPVS(true);
+            return m;
+        });
+        torneig.afegeix("MiniMassimo d4", () -> new MiniMassimo(4, true, true));
+        torneig.afegeix("Profe d4", () -> new Profe(4, false));
+        torneig.afegeix("DemoPlayer", () -> new DemoPlayer());
+        torneig.afegeix("Aleatori", () -> new Aleatori());
+
+        // Alguns jugadors de la llibreria escriuen per la consola a cada moviment; aquí no interessa.
+        // Els errors de les partides surten per System.err, que no es toca.
+        PrintStream consola = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        long inici = System.nanoTime();
+        List<Resultat> resultats;
+        try {
+            resultats = torneig.juga(gauntlet, partides, fils);
+        } finally {
+            System.setOut(consola);
+        }
+
+        torneig.informe(resultats, System.out);
+        System.out.printf("%d partides en %.1f s amb %d fils%n", resultats.size(), (System.nanoTime() - inici) / 1e9, fils);
+    }
+
+    /**
+     * Afegeix un participant al torneig
+     *
+     * @param nom nom amb què surt a l'informe
+     * @param fabrica crea una instància nova del jugador per a cada partida
+     */
+    public void afegeix(String nom, Supplier<Jugador> fabrica) {
+        participants.add(new Participant(nom, fabrica));
+    }
+
+    /**
+     * Indica on s'han de desar les partides jugades
+     *
+     * @param fitxer camí del fitxer on s'afegeix cada partida, null per no desar-les
+     */
+    public void setFitxerPartides(String fitxer) {
+        this.fitxerPartides = fitxer;
+    }
+
+    /**
+     * Juga totes les partides del torneig
+     *
+     * @param gauntlet true si el primer participant juga contra cadascun dels altres, false si tots juguen contra tots
+     * @param partidesPerParella partides de cada enfrontament; si és senar, se'n juga una més per igualar els colors
+     * @param fils nombre de partides que es juguen alhora
+     * @return resultat de cada partida acabada; les que fallen s'escriuen per System.err i es compten a l'informe
+     * @throws InterruptedException si s'interromp el fil mentre espera les partides
+     */
+    public List<Resultat> juga(boolean gauntlet, int partidesPerParella, int fils) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(fils);
+        List<Future<Resultat>> tasques = new ArrayList<>();
+        int n = participants.size();
+        int llavor = 0;
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                if (gauntlet && a > 0) break;
+                final int pa = a, pb = b;
+                for (int i = 0; i < partidesPerParella; i += 2) {
+                    final int[] obertura = obertura(new Random(llavor++));
+                    tasques.add(executor.submit(() -> jugaPartida(pa, pb, obertura)));
+                    tasques.add(executor.submit(() -> jugaPartida(pb, pa, obertura)));
+                }
+            }
+        }
+        executor.shutdown();
+
+        // Una partida que falla (per exemple, en crear un jugador o desar-la) no atura el torneig
+        List<Resultat> resultats = new ArrayList<>(tasques.size());
+        fallides = 0;
+        for (Future<Resultat> tasca : tasques) {
+            try {
+                resultats.add(tasca.get());
+            } catch (ExecutionException ex) {
+                fallides++;
+                System.err.println("Partida fallida: " + ex.getCause());
+            }
+        }
+        return resultats;
+    }
+
+    /**
+     * Genera una obertura aleatòria que no guanya cap dels dos colors
+     *
+     * @param r generador aleatori
+     * @return columnes de l'obertura, en ordre
+     */
+    private int[] obertura(Random r) {
+        int[] columnes = new int[pliesObertura];
+        Tauler t = new Tauler(MIDA);
+        int color = 1;
+        for (int i = 0; i < pliesObertura; i++) {
+            int col;
+            do {
+                col = r.nextInt(MIDA);
+            } while (!t.movpossible(col));
+            t.afegeix(col, color);
+            if (t.solucio(col, color)) return obertura(r); // Molt improbable amb poques plies: es torna a provar
+            columnes[i] = col;
+            color = -color;
+        }
+        return columnes;
+    }
+
+    /**
+     * Juga una partida sencera
+     *
+     * @param p1 índex del participant que juga amb el color 1 (comença)
+     * @param p2 índex del participant que juga amb el color -1
+     * @param obertura columnes que es juguen abans de deixar moure els jugadors
+     * @return resultat de la partida
+     */
+    private Resultat jugaPartida(int p1, int p2, int[] obertura) {
+        Jugador[] jugadors = {participants.get(p1).fabrica.get(), participants.get(p2).fabrica.get()};
+        Resultat resultat = new Resultat(p1, p2);
+        RegistrePartida registre = new RegistrePartida(MIDA, 4, participants.get(p1).nom, RegistrePartida.configuracio(jugadors[0]),
+                participants.get(p2).nom, RegistrePartida.configuracio(jugadors[1]));
+        Tauler t = new Tauler(MIDA);
+        int color = 1;
+        for (int col : obertura) {
+            t.afegeix(col, color);
+            registre.afegeixForcat(col);
+            color = -color;
+        }
+
+        juga(jugadors, t, color, resultat, registre);
+        registre.setResultat(resultat.guanyador);
+        if (fitxerPartides != null) {
+            try {
+                registre.desa(fitxerPartides);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Deixa moure els jugadors fins que s'acaba la partida
+     *
+     * @param jugadors jugador del color 1 i jugador del color -1
+     * @param t tauler de la partida, després de l'obertura
+     * @param color color a qui toca tirar
+     * @param resultat on es deixen el guanyador i els temps i nodes de cada jugador
+     * @param registre on s'afegeixen els moviments legals
+     */
+    private void juga(Jugador[] jugadors, Tauler t, int color, Resultat resultat, RegistrePartida registre) {
+        while (true) {
+            int j = color == 1 ? 0 : 1;
+            long inici = System.nanoTime();
+            int col;
+            try {
+                col = jugadors[j].moviment(new Tauler(t), color); // Amb una còpia, el jugador no pot tocar el tauler de la partida
+            } catch (RuntimeException ex) { // Un jugador que falla perd la partida, com amb un moviment il·legal
+                System.err.println("Excepció de " + jugadors[j].nom() + ": " + ex);
+                col = -1;
+            }
+            long temps = System.nanoTime() - inici;
+            long nodes = jugadors[j] instanceof MiniMassimo ? ((MiniMassimo) jugadors[j]).getNodesMoviment() : 0;
+            resultat.temps[j] += temps;
+            resultat.moviments[j]++;
+            resultat.nodes[j] += nodes;
+
+            if (col < 0 || col >= MIDA || !t.movpossible(col)) { // Moviment il·legal o excepció: perd
+                resultat.guanyador = -color;
+                resultat.illegal = true;
+                return;
+            }
+            t.afegeix(col, color);
+            registre.afegeix(col, temps, nodes);
+            if (t.solucio(col, color)) {
+                resultat.guanyador = color;
+                return;
+            }
+            if (!t.espotmoure()) {
+                resultat.guanyador = 0;
+                return;
+            }
+            color = -color;
+        }
+    }
+
+    /**
+     * Escriu la classificació i els enfrontaments dels resultats d'un torneig
+     *
+     * @param resultats resultats retornats per juga
+     * @param sortida on s'escriu l'informe
+     */
+    public void informe(List<Resultat> resultats, PrintStream sortida) {
+        int n = participants.size();
+        Estadistiques[] total = new Estadistiques[n];
+        Estadistiques[][] parelles = new Estadistiques[n][n];
+        for (int i = 0; i < n; i++) {
+            total[i] = new Estadistiques();
+            for (int j = 0; j < n; j++) parelles[i][j] = new Estadistiques();
+        }
+        int illegals = 0;
+        for (Resultat r : resultats) {
+            int[] p = {r.p1, r.p2};
+            for (int k = 0; k < 2; k++) {
+                int punts = r.guanyador == 0 ? 1 : (r.guanyador == (k == 0 ? 1 : -1) ? 2 : 0); // Mitjos punts
+                total[p[k]].afegeix(punts, r.temps[k], r.moviments[k], r.nodes[k]);
+                parelles[p[k]][p[1 - k]].afegeix(punts, r.temps[k], r.moviments[k], r.nodes[k]);
+            }
+            if (r.illegal) illegals++;
+        }
+
+        sortida.printf("%-22s %6s %5s %5s %5s %16s %10s %12s%n", "Jugador", "Part.", "V", "T", "D", "Elo (95%)", "ms/mov", "nodes/mov");
+        for (int i = 0; i < n; i++) {
+            Estadistiques e = total[i];
+            sortida.printf("%-22s %6d %5d %5d %5d %16s %10.2f %12.0f%n", participants.get(i).nom, e.partides(),
+                    e.victories, e.taules, e.derrotes, e.elo(), e.tempsMitja(), e.nodesMitjans());
+        }
+        sortida.println();
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                Estadistiques e = parelles[i][j];
+                if (e.partides() == 0) continue;
+                sortida.printf("%-22s - %-22s %+d =%d -%d  Elo %s%n", participants.get(i).nom, participants.get(j).nom,
+                        e.victories, e.taules, e.derrotes, e.elo());
+            }
+        }
+        if (illegals > 0) sortida.println("Partides acabades per un moviment il·legal o una excepció: " + illegals);
+        if (fallides > 0) sortida.println("Partides fallides, que no compten: " + fallides);
+    }
+
+    /**
+     * Participant del torneig: un nom i la manera de crear el jugador
+     */
+    private static class Participant {
+
+        final String nom;
+        final Supplier<Jugador> fabrica;
+
+        Participant(String nom, Supplier<Jugador> fabrica) {
+            this.nom = nom;
+            this.fabrica = fabrica;
+        }
+    }
+
+    /**
+     * Resultat d'una partida. Els arrays tenen a la posició 0 les dades del
+     * jugador del color 1 i a la 1 les del color -1.
+     */
+    public static class Resultat {
+
+        final int p1, p2; // Índexs dels participants
+        int guanyador; // Color guanyador, 0 si són taules
+        boolean illegal; // La partida s'ha acabat per un moviment il·legal o una excepció del jugador
+        final long[] temps = new long[2]; // Nanosegons pensant
+        final int[] moviments = new int[2];
+        final long[] nodes = new long[2];
+
+        Resultat(int p1, int p2) {
+            this.p1 = p1;
+            this.p2 = p2;
+        }
+    }
+
+    /**
+     * Acumulats d'un jugador, en total o contra un rival concret
+     */
+    private static class Estadistiques {
+
+        int victories, taules, derrotes;
+        long temps, moviments, nodes;
+
+        void afegeix(int punts, long temps, int moviments, long nodes) {
+            if (punts == 2) victories++;
+            else if (punts == 1) taules++;
+            else derrotes++;
+            this.temps += temps;
+            this.moviments += moviments;
+            this.nodes += nodes;
+        }
+
+        int partides() {
+            return victories + taules + derrotes;
+        }
+
+        double tempsMitja() {
+            return moviments == 0 ? 0 : temps / 1e6 / moviments;
+        }
+
+        double nodesMitjans() {
+            return moviments == 0 ? 0 : (double) nodes / moviments;
+        }
+
+        /**
+         * Diferència d'Elo respecte dels rivals que correspon a la puntuació
+         * obtinguda, amb l'interval de confiança del 95% calculat a partir de
+         * la desviació típica de la puntuació de cada partida
+         *
+         * @return text amb l'Elo i l'interval, o "-" si no hi ha partides
+         */
+        String elo() {
+            int n = partides();
+            if (n == 0) return "-";
+            double p = (victories + 0.5 * taules) / n;
+            double variancia = (victories * (1 - p) * (1 - p) + taules * (0.5 - p) * (0.5 - p) + derrotes * p * p) / n;
+            double error = 1.96 * Math.sqrt(variancia / n);
+            double elo = elo(p);
+            double marge = (elo(p + error) - elo(p - error)) / 2;
+            if (Double.isInfinite(elo)) return elo > 0 ? "+inf" : "-inf";
+            if (Double.isInfinite(marge)) return String.format("%+.0f +/- inf", elo);
+            return String.format("%+.0f +/- %.0f", elo, marge);
+        }
+
+        private static double elo(double puntuacio) {
+            if (puntuacio <= 0) return Double.NEGATIVE_INFINITY;
+            if (puntuacio >= 1) return Double.POSITIVE_INFINITY;
+            return -400 * Math.log10(1 / puntuacio - 1);
+        }
+    }
+}